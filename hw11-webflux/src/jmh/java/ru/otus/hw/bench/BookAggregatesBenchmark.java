@@ -0,0 +1,182 @@
+package ru.otus.hw.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.r2dbc.core.DatabaseClient;
+import ru.otus.hw.Application;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.BookRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность {@code findAllAggregates} на 100k книгах (по 3 жанра) в H2, книг в секунду.
+ * {@code join} — текущая реализация (плоский join, агрегат из соседних строк); {@code jsonObjectMapper} —
+ * прежняя ({@code json_object}/{@code json_array} и {@code ObjectMapper.readValue} на строку);
+ * {@code jsonObjectReader} — тот же JSON, но заранее собранные {@code ObjectReader}.
+ * GC-профайлер даёт аллокации на книгу.
+ * Запуск: main из IDE после {@code mvn -Pjmh test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BookAggregatesBenchmark {
+
+    private static final int BOOKS = 100_000;
+
+    private static final int AUTHORS = 1_000;
+
+    private static final int GENRES = 50;
+
+    private static final int GENRES_PER_BOOK = 3;
+
+    private static final String JSON_SQL = """
+            select
+              b.id as id,
+              b.title as title,
+              json_object(
+                  key 'id' value a.id,
+                  key 'fullName' value a.full_name
+              ) as author,
+              json_array(
+                select json_object(key 'id' value g.id, key 'name' value g.name)
+                from books_genres bg
+                join genres g on g.id = bg.genre_id
+                where bg.book_id = b.id
+                order by g.id
+              ) as genres
+            from books b
+            join authors a on a.id = b.author_id
+            order by b.id
+            """;
+
+    private ConfigurableApplicationContext context;
+
+    private BookRepository repository;
+
+    private DatabaseClient client;
+
+    private ObjectMapper objectMapper;
+
+    private ObjectReader authorReader;
+
+    private ObjectReader genresReader;
+
+    @Setup
+    public void setUp() {
+        var db = "bench_" + UUID.randomUUID().toString().replace("-", "");
+        context = new SpringApplicationBuilder(Application.class)
+                .properties(
+                        "spring.main.web-application-type=none",
+                        "spring.main.banner-mode=off",
+                        "spring.datasource.url=jdbc:h2:mem:" + db + ";DB_CLOSE_DELAY=-1",
+                        "spring.r2dbc.url=r2dbc:h2:mem:///" + db + "?options=DB_CLOSE_DELAY=-1",
+                        "spring.liquibase.url=jdbc:h2:mem:" + db + ";DB_CLOSE_DELAY=-1",
+                        "spring.sql.init.mode=never",
+                        "logging.level.root=WARN")
+                .run();
+        repository = context.getBean(BookRepository.class);
+        client = context.getBean(DatabaseClient.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        authorReader = objectMapper.readerFor(Author.class);
+        genresReader = objectMapper.readerFor(new TypeReference<List<Genre>>() {
+        });
+        seed();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS)
+    public long join() {
+        return repository.findAllAggregates().count().block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS)
+    public long jsonObjectMapper() {
+        return client.sql(JSON_SQL)
+                .map(row -> {
+                    try {
+                        Author author = objectMapper.readValue(row.get("author", String.class), Author.class);
+                        List<Genre> genres = objectMapper.readValue(row.get("genres", String.class),
+                                new TypeReference<>() {
+                                });
+                        return new Book(row.get("id", Long.class), row.get("title", String.class),
+                                author.getId(), author, genres);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .all().count().block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS)
+    public long jsonObjectReader() {
+        return client.sql(JSON_SQL)
+                .map(row -> {
+                    try {
+                        Author author = authorReader.readValue(row.get("author", String.class));
+                        List<Genre> genres = genresReader.readValue(row.get("genres", String.class));
+                        return new Book(row.get("id", Long.class), row.get("title", String.class),
+                                author.getId(), author, genres);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .all().count().block();
+    }
+
+    private void seed() {
+        exec("insert into authors(id, full_name) select x, 'Author_' || x from system_range(1, " + AUTHORS + ")");
+        exec("insert into genres(id, name) select x, 'Genre_' || x from system_range(1, " + GENRES + ")");
+        exec("insert into books(id, title, author_id) select x, 'Book_' || x, 1 + mod(x, " + AUTHORS + ")"
+                + " from system_range(1, " + BOOKS + ")");
+        exec("insert into books_genres(book_id, genre_id)"
+                + " select b.x, 1 + mod(b.x + g.x, " + GENRES + ")"
+                + " from system_range(1, " + BOOKS + ") b, system_range(0, " + (GENRES_PER_BOOK - 1) + ") g");
+    }
+
+    private void exec(String sql) {
+        client.sql(sql).fetch().rowsUpdated().block();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BookAggregatesBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
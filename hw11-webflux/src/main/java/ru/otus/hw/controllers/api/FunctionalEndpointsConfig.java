@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.RequestPredicate;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import ru.otus.hw.controllers.api.handlers.AuthorHandler;
@@ -11,6 +12,7 @@ import ru.otus.hw.controllers.api.handlers.BookHandler;
 import ru.otus.hw.controllers.api.handlers.CommentHandler;
 import ru.otus.hw.controllers.api.handlers.GenreHandler;
 
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 import static org.springframework.web.reactive.function.server.RequestPredicates.path;
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
 
@@ -31,6 +33,7 @@ public class FunctionalEndpointsConfig {
                         .GET("/authors", authors::list)
                         .GET("/genres", genres::list)
                         .nest(path("/books"), b -> b
+                                .GET("", acceptsNdjson(), books::stream)
                                 .GET("", books::list)
                                 .POST("", books::create)
                                 .GET("/{id}", books::get)
@@ -44,4 +47,12 @@ public class FunctionalEndpointsConfig {
                 .build();
     }
 
+    /**
+     * Только явный NDJSON: {@code RequestPredicates.accept} совпал бы и с универсальным {@code Accept},
+     * который по умолчанию шлют браузер и fetch.
+     */
+    private static RequestPredicate acceptsNdjson() {
+        return req -> req.headers().accept().stream().anyMatch(APPLICATION_NDJSON::equalsTypeAndSubtype);
+    }
+
 }
@@ -7,10 +7,12 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import ru.otus.hw.dto.BookDto;
 import ru.otus.hw.dto.BookFormDto;
 import ru.otus.hw.mappers.BookMapper;
+import ru.otus.hw.models.Book;
 import ru.otus.hw.services.BookService;
 import ru.otus.hw.util.PatchUtils;
 import ru.otus.hw.util.RequestUtils;
@@ -21,6 +23,7 @@ import java.util.function.LongFunction;
 import java.util.function.Supplier;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 import static org.springframework.web.reactive.function.BodyInserters.fromPublisher;
 import static org.springframework.web.reactive.function.server.ServerResponse.created;
 import static org.springframework.web.reactive.function.server.ServerResponse.noContent;
@@ -30,6 +33,10 @@ import static org.springframework.web.reactive.function.server.ServerResponse.ok
 @RequiredArgsConstructor
 public class BookHandler {
 
+    private static final long DEFAULT_PAGE_SIZE = 100;
+
+    private static final long MAX_PAGE_SIZE = 1000;
+
     private static final ParameterizedTypeReference<Map<String, Object>> MAP =
             new ParameterizedTypeReference<>() {
             };
@@ -39,9 +46,36 @@ public class BookHandler {
     private final Validator validator;
 
 
+    /**
+     * Без параметров — весь каталог; с {@code after} и/или {@code limit} — одна страница по ключу.
+     * Следующая страница — {@code after=<id последней книги>}.
+     */
     public Mono<ServerResponse> list(ServerRequest req) {
-        return ok().contentType(APPLICATION_JSON)
-                .body(fromPublisher(bookService.findAll().map(BookMapper::toDto), BookDto.class));
+        return defer(() -> {
+            var after = RequestUtils.queryLong(req, "after");
+            var limit = RequestUtils.queryLong(req, "limit");
+            Flux<Book> books = after.isEmpty() && limit.isEmpty()
+                    ? bookService.findAll()
+                    : bookService.findPage(after.orElse(0L), pageSize(limit.orElse(DEFAULT_PAGE_SIZE)));
+            return ok().contentType(APPLICATION_JSON)
+                    .body(fromPublisher(books.map(BookMapper::toDto), BookDto.class));
+        });
+    }
+
+    /**
+     * NDJSON: книга на строку, отправляется по мере чтения. Без {@code limit} — весь каталог после
+     * {@code after}, читаемый страницами по запросу подписчика.
+     */
+    public Mono<ServerResponse> stream(ServerRequest req) {
+        return defer(() -> {
+            long after = RequestUtils.queryLong(req, "after").orElse(0L);
+            var limit = RequestUtils.queryLong(req, "limit");
+            Flux<Book> books = limit.isPresent()
+                    ? bookService.findPage(after, pageSize(limit.get()))
+                    : bookService.streamAll(after);
+            return ok().contentType(APPLICATION_NDJSON)
+                    .body(fromPublisher(books.map(BookMapper::toDto), BookDto.class));
+        });
     }
 
     public Mono<ServerResponse> get(ServerRequest req) {
@@ -89,6 +123,13 @@ public class BookHandler {
         return withId(req, id -> bookService.deleteById(id).then(noContent().build()));
     }
 
+    private static int pageSize(long limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and %d".formatted(MAX_PAGE_SIZE));
+        }
+        return (int) limit;
+    }
+
     private Mono<ServerResponse> defer(Supplier<Mono<ServerResponse>> supplier) {
         return Mono.defer(supplier);
     }
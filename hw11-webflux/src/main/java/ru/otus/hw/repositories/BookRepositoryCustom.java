@@ -8,6 +8,11 @@ public interface BookRepositoryCustom {
 
     Flux<Book> findAllAggregates();
 
+    /**
+     * Страница агрегатов по ключу: до {@code limit} книг с id больше {@code afterId}, по возрастанию id.
+     */
+    Flux<Book> findAggregatesAfter(long afterId, int limit);
+
     Mono<Book> findAggregateById(Long id);
 
     Mono<Void> replaceGenres(Long bookId, Iterable<Long> genreIds);
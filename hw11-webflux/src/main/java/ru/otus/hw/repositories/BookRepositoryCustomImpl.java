@@ -1,12 +1,10 @@
 package ru.otus.hw.repositories;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.r2dbc.spi.Row;
 import io.r2dbc.spi.RowMetadata;
 import lombok.RequiredArgsConstructor;
-import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.data.r2dbc.core.R2dbcEntityOperations;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -14,92 +12,155 @@ import ru.otus.hw.models.Author;
 import ru.otus.hw.models.Book;
 import ru.otus.hw.models.Genre;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
 import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 
 @Repository
 @RequiredArgsConstructor
 public class BookRepositoryCustomImpl implements BookRepositoryCustom {
 
-    private static final String BASE_JSON = """
+    /**
+     * Плоский join: строка на пару книга-жанр (книга без жанров — одна строка с null), подряд
+     * по книге. Агрегат собирается из соседних строк без JSON и без промежуточных строк-документов.
+     */
+    private static final String SELECT = """
             select
               b.id as id,
               b.title as title,
-              json_object(
-                  key 'id' value a.id,
-                  key 'fullName' value a.full_name
-              ) as author,
-              json_array(
-                select json_object(key 'id' value g.id, key 'name' value g.name)
-                from books_genres bg
-                join genres g on g.id = bg.genre_id
-                where bg.book_id = b.id
-                order by g.id
-              ) as genres
-            from books b
+              a.id as author_id,
+              a.full_name as author_full_name,
+              g.id as genre_id,
+              g.name as genre_name
+            """;
+
+    private static final String JOINS = """
             join authors a on a.id = b.author_id
-            
+            left join books_genres bg on bg.book_id = b.id
+            left join genres g on g.id = bg.genre_id
             """;
 
-    private final BiFunction<Row, RowMetadata, Book> bookAggregateMapper = (row, md) -> mapRow(
+    private static final String BASE_JOIN = SELECT + "from books b\n" + JOINS;
+
+    /**
+     * Лимит — на книги, а не на строки join'а, поэтому страница книг выбирается подзапросом.
+     */
+    private static final String PAGE_JOIN = SELECT + """
+            from (select id, title, author_id from books where id > :after order by id limit :limit) b
+            """ + JOINS;
+
+    private static final String ORDER = "order by b.id, g.id";
+
+    private static final BiFunction<Row, RowMetadata, BookRow> BOOK_ROW_MAPPER = (row, md) -> new BookRow(
             row.get("id", Long.class),
             row.get("title", String.class),
-            row.get("author", String.class),
-            row.get("genres", String.class)
+            row.get("author_id", Long.class),
+            row.get("author_full_name", String.class),
+            row.get("genre_id", Long.class),
+            row.get("genre_name", String.class)
     );
 
     private final R2dbcEntityOperations ops;
 
-    private final ObjectMapper objectMapper;
-
 
     @Override
     public Flux<Book> findAllAggregates() {
-        return ops.getDatabaseClient().sql(BASE_JSON + "order by b.id")
-                .map(bookAggregateMapper)
-                .all();
+        return aggregates(ops.getDatabaseClient().sql(BASE_JOIN + ORDER));
+    }
+
+    @Override
+    public Flux<Book> findAggregatesAfter(long afterId, int limit) {
+        return aggregates(ops.getDatabaseClient()
+                .sql(PAGE_JOIN + ORDER)
+                .bind("after", afterId)
+                .bind("limit", limit));
     }
 
     @Override
     public Mono<Book> findAggregateById(Long id) {
-        return ops.getDatabaseClient()
-                .sql(BASE_JSON + "where b.id = :id")
-                .bind("id", id)
-                .map(bookAggregateMapper)
-                .one();
+        return aggregates(ops.getDatabaseClient()
+                .sql(BASE_JOIN + "where b.id = :id\n" + ORDER)
+                .bind("id", id))
+                .next();
     }
 
+    /**
+     * Сравнивает текущие связи с нужными и меняет только разницу: одно удаление по списку и одна
+     * многострочная вставка. Число обращений к БД не зависит от числа жанров; если набор жанров
+     * не изменился, выполняется только чтение текущих связей.
+     */
     @Override
     public Mono<Void> replaceGenres(Long bookId, Iterable<Long> genreIds) {
-        var delete = ops.getDatabaseClient()
-                .sql("delete from books_genres where book_id = :bid")
-                .bind("bid", bookId)
-                .fetch().rowsUpdated();
+        Set<Long> target = new LinkedHashSet<>();
+        genreIds.forEach(target::add);
 
-        var batchInsert = Flux.fromIterable(genreIds).concatMap(gid ->
-                ops.getDatabaseClient()
-                        .sql("insert into books_genres(book_id, genre_id) values(:bid, :gid)")
-                        .bind("bid", bookId)
-                        .bind("gid", gid)
-                        .fetch().rowsUpdated());
+        return ops.getDatabaseClient()
+                .sql("select genre_id from books_genres where book_id = :bid")
+                .bind("bid", bookId)
+                .map(row -> row.get("genre_id", Long.class))
+                .all()
+                .collect(Collectors.toSet())
+                .flatMap(current -> {
+                    List<Long> removed = current.stream().filter(gid -> !target.contains(gid)).toList();
+                    List<Long> added = target.stream().filter(gid -> !current.contains(gid)).toList();
+                    return deleteLinks(bookId, removed).then(insertLinks(bookId, added));
+                });
+    }
 
-        return delete.thenMany(batchInsert).then();
+    private Mono<Void> deleteLinks(Long bookId, List<Long> genreIds) {
+        if (genreIds.isEmpty()) {
+            return Mono.empty();
+        }
+        return ops.getDatabaseClient()
+                .sql("delete from books_genres where book_id = :bid and genre_id in (:gids)")
+                .bind("bid", bookId)
+                .bind("gids", genreIds)
+                .fetch().rowsUpdated()
+                .then();
     }
 
-    private Book mapRow(Long id, String title, String authorJson, String genresJson) {
-        try {
-            var author = objectMapper.readValue(authorJson, Author.class);
+    private Mono<Void> insertLinks(Long bookId, List<Long> genreIds) {
+        if (genreIds.isEmpty()) {
+            return Mono.empty();
+        }
+        var values = new StringJoiner(", ");
+        for (int i = 0; i < genreIds.size(); i++) {
+            values.add("(:bid, :g" + i + ")");
+        }
+        var spec = ops.getDatabaseClient()
+                .sql("insert into books_genres(book_id, genre_id) values " + values)
+                .bind("bid", bookId);
+        for (int i = 0; i < genreIds.size(); i++) {
+            spec = spec.bind("g" + i, genreIds.get(i));
+        }
+        return spec.fetch().rowsUpdated().then();
+    }
 
-            List<Genre> genres = (genresJson == null || genresJson.isBlank())
-                    ? Collections.emptyList()
-                    : objectMapper.readValue(genresJson, new TypeReference<>() {
-            });
+    private static Flux<Book> aggregates(DatabaseClient.GenericExecuteSpec spec) {
+        return spec.map(BOOK_ROW_MAPPER)
+                .all()
+                .bufferUntilChanged(BookRow::id)
+                .map(BookRepositoryCustomImpl::toBook);
+    }
 
-            return new Book(id, title, author.getId(), author, genres);
-        } catch (Exception e) {
-            throw new DataRetrievalFailureException("Failed to parse aggregated JSON for book id=" + id, e);
+    private static Book toBook(List<BookRow> rows) {
+        BookRow first = rows.get(0);
+        List<Genre> genres = new ArrayList<>(rows.size());
+        for (BookRow row : rows) {
+            if (row.genreId() != null) {
+                genres.add(new Genre(row.genreId(), row.genreName()));
+            }
         }
+        var author = new Author(first.authorId(), first.authorFullName());
+        return new Book(first.id(), first.title(), first.authorId(), author, genres);
+    }
+
+    private record BookRow(Long id, String title, Long authorId, String authorFullName,
+                           Long genreId, String genreName) {
     }
 
 }
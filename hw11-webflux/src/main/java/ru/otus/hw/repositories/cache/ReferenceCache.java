@@ -0,0 +1,145 @@
+package ru.otus.hw.repositories.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Неблокирующий кэш небольшого справочника целиком: снимок всех строк по id.
+ * <ul>
+ *     <li>Первое обращение грузит таблицу; одновременные обращения ждут одну и ту же загрузку.
+ *     Загрузка идёт вне транзакции вызвавшего, на своём соединении.</li>
+ *     <li>Устаревший снимок ({@code refreshAfter}) отдаётся сразу, а обновление идёт в фоне.</li>
+ *     <li>{@link #invalidate()} сбрасывает снимок; загрузки, начатые до сброса, его не перезапишут.</li>
+ *     <li>Промах по id проверяется в БД: строка, добавленная в обход приложения, находится сразу,
+ *     а снимок сбрасывается.</li>
+ * </ul>
+ */
+@Slf4j
+public class ReferenceCache<T> {
+
+    private final String name;
+
+    private final Supplier<Flux<T>> loadAll;
+
+    private final Function<List<Long>, Flux<T>> loadByIds;
+
+    private final Function<T, Long> idOf;
+
+    private final long refreshAfterNanos;
+
+    private final AtomicReference<Snapshot<T>> current = new AtomicReference<>();
+
+    private final AtomicReference<Loading<T>> loading = new AtomicReference<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    public ReferenceCache(String name, Supplier<Flux<T>> loadAll, Function<List<Long>, Flux<T>> loadByIds,
+                          Function<T, Long> idOf, Duration refreshAfter) {
+        this.name = name;
+        this.loadAll = loadAll;
+        this.loadByIds = loadByIds;
+        this.idOf = idOf;
+        this.refreshAfterNanos = refreshAfter.toNanos();
+    }
+
+    /**
+     * Все строки по возрастанию id.
+     */
+    public Flux<T> findAll() {
+        return snapshot().flatMapIterable(Map::values);
+    }
+
+    public Mono<T> findById(Long id) {
+        return findAllById(List.of(id)).next();
+    }
+
+    public Flux<T> findAllById(Iterable<Long> ids) {
+        return snapshot().flatMapMany(items -> {
+            List<T> found = new ArrayList<>();
+            List<Long> missing = new ArrayList<>();
+            for (Long id : ids) {
+                T item = items.get(id);
+                if (item != null) {
+                    found.add(item);
+                } else {
+                    missing.add(id);
+                }
+            }
+            if (missing.isEmpty()) {
+                return Flux.fromIterable(found);
+            }
+            return Flux.fromIterable(found).concatWith(loadByIds.apply(missing)
+                    .doOnNext(item -> invalidate()));
+        });
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        current.set(null);
+    }
+
+    private Mono<Map<Long, T>> snapshot() {
+        Snapshot<T> snap = current.get();
+        if (snap == null) {
+            return load();
+        }
+        if (System.nanoTime() - snap.loadedAt() > refreshAfterNanos) {
+            refreshInBackground();
+        }
+        return Mono.just(snap.items());
+    }
+
+    private Mono<Map<Long, T>> load() {
+        long gen = generation.get();
+        Loading<T> inFlight = loading.get();
+        if (inFlight != null && inFlight.generation() == gen) {
+            return inFlight.result();
+        }
+        var self = new AtomicReference<Loading<T>>();
+        Mono<Map<Long, T>> result = loadAll.get()
+                .collectMap(idOf, Function.identity(), TreeMap::new)
+                .<Map<Long, T>>map(Collections::unmodifiableMap)
+                .doOnNext(items -> {
+                    if (generation.get() == gen) {
+                        current.set(new Snapshot<>(items, System.nanoTime()));
+                    }
+                })
+                .doFinally(signal -> loading.compareAndSet(self.get(), null))
+                // общая загрузка не должна попасть в транзакцию первого вызвавшего: её откат или ошибка
+                // достались бы всем ждущим, а незакоммиченные строки — снимку
+                .contextWrite(ctx -> Context.empty())
+                .cache();
+        self.set(new Loading<>(gen, result));
+        return loading.compareAndSet(inFlight, self.get()) ? result : load();
+    }
+
+    private void refreshInBackground() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        load().doFinally(signal -> refreshing.set(false))
+                .subscribe(items -> { }, e -> log.warn("Failed to refresh {} cache", name, e));
+    }
+
+    private record Snapshot<T>(Map<Long, T> items, long loadedAt) {
+    }
+
+    private record Loading<T>(long generation, Mono<Map<Long, T>> result) {
+    }
+}
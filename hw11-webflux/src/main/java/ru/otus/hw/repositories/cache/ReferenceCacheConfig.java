@@ -0,0 +1,64 @@
+package ru.otus.hw.repositories.cache;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.AuthorRepository;
+import ru.otus.hw.repositories.GenreRepository;
+
+import java.time.Duration;
+
+/**
+ * Кэши авторов и жанров. Сохранение через репозиторий сбрасывает кэш сразу (R2DBC-колбэк) и ещё раз
+ * после коммита транзакции: снимок, загруженный между сохранением и коммитом, изменения ещё не видит.
+ * Изменения в обход приложения подхватываются фоновым обновлением и проверкой промахов в БД.
+ * Колбэки берут кэш через {@link ObjectProvider}: кэш зависит от репозитория, репозиторий — от
+ * {@code R2dbcEntityTemplate}, а тот собирает колбэки, так что прямая ссылка замкнула бы цикл бинов.
+ */
+@Configuration
+public class ReferenceCacheConfig {
+
+    @Bean
+    public ReferenceCache<Author> authorCache(AuthorRepository repository,
+                                              @Value("${app.reference-cache.refresh-after:5m}") Duration refresh) {
+        return new ReferenceCache<>("authors", repository::findAll, repository::findAllById, Author::getId, refresh);
+    }
+
+    @Bean
+    public ReferenceCache<Genre> genreCache(GenreRepository repository,
+                                            @Value("${app.reference-cache.refresh-after:5m}") Duration refresh) {
+        return new ReferenceCache<>("genres", repository::findAll, repository::findAllById, Genre::getId, refresh);
+    }
+
+    @Bean
+    public AfterSaveCallback<Author> authorCacheInvalidation(ObjectProvider<ReferenceCache<Author>> authorCache) {
+        return (author, row, table) -> invalidate(authorCache.getObject()).thenReturn(author);
+    }
+
+    @Bean
+    public AfterSaveCallback<Genre> genreCacheInvalidation(ObjectProvider<ReferenceCache<Genre>> genreCache) {
+        return (genre, row, table) -> invalidate(genreCache.getObject()).thenReturn(genre);
+    }
+
+    private static Mono<Void> invalidate(ReferenceCache<?> cache) {
+        cache.invalidate();
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .doOnNext(manager -> manager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCommit() {
+                        return Mono.fromRunnable(cache::invalidate);
+                    }
+                }))
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+                .then();
+    }
+}
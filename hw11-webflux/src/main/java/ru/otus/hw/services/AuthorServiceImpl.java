@@ -2,19 +2,17 @@ package ru.otus.hw.services;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import ru.otus.hw.models.Author;
-import ru.otus.hw.repositories.AuthorRepository;
+import ru.otus.hw.repositories.cache.ReferenceCache;
 
 @Service
 @RequiredArgsConstructor
 public class AuthorServiceImpl implements AuthorService {
-    private final AuthorRepository authorRepository;
+    private final ReferenceCache<Author> authorCache;
 
     @Override
-    @Transactional(readOnly = true)
     public Flux<Author> findAll() {
-        return authorRepository.findAll();
+        return authorCache.findAll();
     }
 }
@@ -11,6 +11,10 @@ public interface BookService {
 
     Flux<Book> findAll();
 
+    Flux<Book> findPage(long afterId, int limit);
+
+    Flux<Book> streamAll(long afterId);
+
     Mono<Book> insert(String title, Long authorId, Set<Long> genresIds);
 
     Mono<Book> update(Long id, String title, Long authorId, Set<Long> genresIds);
@@ -6,20 +6,26 @@ import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import ru.otus.hw.exceptions.EntityNotFoundException;
+import ru.otus.hw.models.Author;
 import ru.otus.hw.models.Book;
-import ru.otus.hw.repositories.AuthorRepository;
+import ru.otus.hw.models.Genre;
 import ru.otus.hw.repositories.BookRepository;
-import ru.otus.hw.repositories.GenreRepository;
+import ru.otus.hw.repositories.cache.ReferenceCache;
 
+import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 public class BookServiceImpl implements BookService {
 
-    private final AuthorRepository authorRepository;
+    private static final int STREAM_PAGE_SIZE = 500;
 
-    private final GenreRepository genreRepository;
+    private final ReferenceCache<Author> authorCache;
+
+    private final ReferenceCache<Genre> genreCache;
 
     private final BookRepository bookRepository;
 
@@ -36,20 +42,41 @@ public class BookServiceImpl implements BookService {
         return bookRepository.findAllAggregates();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<Book> findPage(long afterId, int limit) {
+        return bookRepository.findAggregatesAfter(afterId, limit);
+    }
+
+    /**
+     * Каталог страницами по ключу: следующая страница запрашивается, только когда подписчик
+     * дочитал текущую, так что в памяти не больше пары страниц. Без общей транзакции — поток
+     * может длиться долго, каждая страница читается своим запросом.
+     */
+    @Override
+    public Flux<Book> streamAll(long afterId) {
+        return page(afterId)
+                .expand(page -> page.size() < STREAM_PAGE_SIZE
+                        ? Mono.empty()
+                        : page(page.get(page.size() - 1).getId()))
+                .flatMapIterable(Function.identity(), 1);
+    }
+
     @Override
     @Transactional
     public Mono<Book> insert(String title, Long authorId, Set<Long> genresIds) {
         return validateForUpsert(authorId, genresIds)
-                .then(saveAndReload(null, title, authorId, genresIds));
+                .flatMap(refs -> save(null, title, authorId, genresIds, refs));
     }
 
     @Override
     @Transactional
     public Mono<Book> update(Long id, String title, Long authorId, Set<Long> genresIds) {
-        return Mono.when(
-                ensureBookExists(id),
-                validateForUpsert(authorId, genresIds)
-        ).then(saveAndReload(id, title, authorId, genresIds));
+        return Mono.zip(
+                ensureBookExists(id).thenReturn(id),
+                validateForUpsert(authorId, genresIds),
+                (bookId, refs) -> refs
+        ).flatMap(refs -> save(id, title, authorId, genresIds, refs));
     }
 
     @Override
@@ -58,24 +85,31 @@ public class BookServiceImpl implements BookService {
         return bookRepository.deleteById(id);
     }
 
-    private Mono<Void> validateForUpsert(Long authorId, Set<Long> genresIds) {
+    private Mono<List<Book>> page(long afterId) {
+        return bookRepository.findAggregatesAfter(afterId, STREAM_PAGE_SIZE).collectList();
+    }
+
+    /**
+     * Проверяет автора и жанры и возвращает их же: ответ на запись собирается из них без
+     * повторного чтения агрегата.
+     */
+    private Mono<References> validateForUpsert(Long authorId, Set<Long> genresIds) {
         if (genresIds == null || genresIds.isEmpty()) {
             return Mono.error(new IllegalArgumentException("Genres ids must not be null or empty"));
         }
 
-        Mono<Void> ensureAuthor = authorRepository.existsById(authorId)
-                .flatMap(exists -> exists
-                        ? Mono.empty()
-                        : Mono.error(new EntityNotFoundException("Author with id %d not found".formatted(authorId))));
+        Mono<Author> author = authorCache.findById(authorId)
+                .switchIfEmpty(Mono.error(new EntityNotFoundException("Author with id %d not found"
+                        .formatted(authorId))));
 
-        Mono<Void> ensureGenres = genreRepository.findAllById(genresIds)
-                .count()
-                .flatMap(cnt -> cnt == genresIds.size()
-                        ? Mono.empty()
+        Mono<List<Genre>> genres = genreCache.findAllById(genresIds)
+                .collectSortedList(Comparator.comparing(Genre::getId))
+                .flatMap(found -> found.size() == genresIds.size()
+                        ? Mono.just(found)
                         : Mono.error(new EntityNotFoundException("One or all genres with ids %s not found"
                                 .formatted(genresIds))));
 
-        return Mono.when(ensureAuthor, ensureGenres);
+        return Mono.zip(author, genres, References::new);
     }
 
     private Mono<Void> ensureBookExists(Long id) {
@@ -85,14 +119,15 @@ public class BookServiceImpl implements BookService {
                         : Mono.error(new EntityNotFoundException("Book with id %d not found".formatted(id))));
     }
 
-    private Mono<Book> saveAndReload(Long id, String title, Long authorId, Set<Long> genresIds) {
+    /**
+     * Жанры в ответе — по возрастанию id, как при чтении агрегата.
+     */
+    private Mono<Book> save(Long id, String title, Long authorId, Set<Long> genresIds, References refs) {
         return bookRepository.save(new Book(id, title, authorId, null, null))
-                .flatMap(saved -> bookRepository.replaceGenres(saved.getId(), genresIds).thenReturn(saved))
-                .flatMap(saved -> loadAggregateOrNotFound(saved.getId()));
+                .flatMap(saved -> bookRepository.replaceGenres(saved.getId(), genresIds)
+                        .thenReturn(new Book(saved.getId(), title, authorId, refs.author(), refs.genres())));
     }
 
-    private Mono<Book> loadAggregateOrNotFound(Long id) {
-        return bookRepository.findAggregateById(id)
-                .switchIfEmpty(Mono.error(new EntityNotFoundException("Book with id %d not found".formatted(id))));
+    private record References(Author author, List<Genre> genres) {
     }
 }
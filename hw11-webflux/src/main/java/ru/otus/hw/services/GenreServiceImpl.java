@@ -2,19 +2,17 @@ package ru.otus.hw.services;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import ru.otus.hw.models.Genre;
-import ru.otus.hw.repositories.GenreRepository;
+import ru.otus.hw.repositories.cache.ReferenceCache;
 
 @Service
 @RequiredArgsConstructor
 public class GenreServiceImpl implements GenreService {
-    private final GenreRepository genreRepository;
+    private final ReferenceCache<Genre> genreCache;
 
     @Override
-    @Transactional(readOnly = true)
     public Flux<Genre> findAll() {
-        return genreRepository.findAll();
+        return genreCache.findAll();
     }
 }
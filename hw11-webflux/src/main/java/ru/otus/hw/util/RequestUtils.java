@@ -3,6 +3,8 @@ package ru.otus.hw.util;
 import lombok.experimental.UtilityClass;
 import org.springframework.web.reactive.function.server.ServerRequest;
 
+import java.util.Optional;
+
 @UtilityClass
 public class RequestUtils {
     public long pathLong(ServerRequest req, String name) {
@@ -12,4 +14,12 @@ public class RequestUtils {
             throw new IllegalArgumentException("Invalid parameter", ex);
         }
     }
+
+    public Optional<Long> queryLong(ServerRequest req, String name) {
+        try {
+            return req.queryParam(name).map(Long::parseLong);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid parameter", ex);
+        }
+    }
 }
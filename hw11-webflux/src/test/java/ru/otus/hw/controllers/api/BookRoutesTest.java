@@ -36,6 +36,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 
 @WebFluxTest
 @Import(value = {
@@ -75,6 +76,46 @@ class BookRoutesTest {
                 .jsonPath("$[0].author.fullName").isEqualTo("Author_1");
     }
 
+    @Test
+    @DisplayName("GET /api/v1/books?after=&limit= returns one keyset page")
+    void listPage() {
+        given(bookService.findPage(5L, 2)).willReturn(Flux.just(stubBook()));
+
+        web.get().uri("/api/v1/books?after=5&limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$").value(hasSize(1));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/books?limit= -> 400 when limit is out of range")
+    void listPageBadLimit() {
+        web.get().uri("/api/v1/books?limit=0")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.title").isEqualTo("Bad Request");
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/books with Accept: application/x-ndjson streams the catalog")
+    void streamNdjson() {
+        given(bookService.streamAll(0L)).willReturn(Flux.just(stubBook(), stubBook()));
+
+        var body = web.get().uri("/api/v1/books")
+                .accept(APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(APPLICATION_NDJSON)
+                .returnResult(String.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertThat(body).hasSize(2).allSatisfy(line -> assertThat(line).contains("\"title\":\"BookTitle_1\""));
+    }
+
     @Test
     @DisplayName("GET /api/v1/books/{id} returns one")
     void getOne() {
@@ -10,6 +10,11 @@ import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
 import reactor.test.StepVerifier;
 import ru.otus.hw.CommonContext;
 import ru.otus.hw.TestData;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -62,6 +67,68 @@ class BookRepositoryTest extends CommonContext {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("findAllAggregates keeps genres of each book together and ordered")
+    void shouldGroupGenresPerBook() {
+        repository.findAllAggregates()
+                .collectList()
+                .as(StepVerifier::create)
+                .assertNext(list -> {
+                    assertThat(list).extracting(Book::getId).containsExactly(1L, 2L, 3L);
+                    assertThat(list.get(1).getGenres()).extracting(Genre::getName)
+                            .containsExactly("Genre_3", "Genre_4");
+                    assertThat(list.get(1).getAuthorId()).isEqualTo(list.get(1).getAuthor().getId());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("findAggregateById returns a book without genres with an empty list")
+    void shouldFindBookWithoutGenres() {
+        repository.save(new Book(null, "NoGenres", 1L, null, new ArrayList<>()))
+                .flatMap(saved -> repository.findAggregateById(saved.getId()))
+                .as(StepVerifier::create)
+                .assertNext(b -> {
+                    assertThat(b.getTitle()).isEqualTo("NoGenres");
+                    assertThat(b.getAuthor().getFullName()).isEqualTo("Author_1");
+                    assertThat(b.getGenres()).isEmpty();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("findAggregatesAfter limits by books, not by genre rows")
+    void shouldFindPageAfterId() {
+        repository.findAggregatesAfter(1L, 1)
+                .collectList()
+                .as(StepVerifier::create)
+                .assertNext(list -> {
+                    assertThat(list).extracting(Book::getId).containsExactly(2L);
+                    assertThat(list.get(0).getGenres()).hasSize(2);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("replaceGenres applies only the difference to the genre links")
+    void shouldReplaceGenres() {
+        repository.replaceGenres(1L, List.of(2L, 3L, 4L))
+                .then(repository.findAggregateById(1L))
+                .as(StepVerifier::create)
+                .assertNext(b -> assertThat(b.getGenres()).extracting(Genre::getId).containsExactly(2L, 3L, 4L))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("replaceGenres keeps links when the genre set is unchanged")
+    void shouldKeepUnchangedGenres() {
+        repository.replaceGenres(1L, List.of(2L, 1L))
+                .then(repository.findAggregateById(1L))
+                .as(StepVerifier::create)
+                .assertNext(b -> assertThat(b.getGenres()).extracting(Genre::getId).containsExactly(1L, 2L))
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("deleteById removes a book")
     void deleteExisting() {
@@ -0,0 +1,93 @@
+package ru.otus.hw.repositories.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import ru.otus.hw.models.Genre;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReferenceCacheTest {
+
+    private final Map<Long, Genre> table = new ConcurrentHashMap<>(Map.of(
+            1L, new Genre(1L, "Genre_1"),
+            2L, new Genre(2L, "Genre_2")));
+
+    private final AtomicInteger fullLoads = new AtomicInteger();
+
+    private final AtomicInteger idLoads = new AtomicInteger();
+
+    private ReferenceCache<Genre> cache(Duration refreshAfter) {
+        return new ReferenceCache<>("genres",
+                () -> Flux.defer(() -> {
+                    fullLoads.incrementAndGet();
+                    return Flux.fromIterable(List.copyOf(table.values()));
+                }),
+                ids -> Flux.defer(() -> {
+                    idLoads.incrementAndGet();
+                    return Flux.fromIterable(ids).mapNotNull(table::get);
+                }),
+                Genre::getId, refreshAfter);
+    }
+
+    @Test
+    @DisplayName("Should load the table once and serve later reads from memory in id order")
+    void shouldServeFromMemory() {
+        var cache = cache(Duration.ofMinutes(5));
+
+        cache.findAll().map(Genre::getId).as(StepVerifier::create).expectNext(1L, 2L).verifyComplete();
+        cache.findAllById(List.of(2L, 1L)).map(Genre::getId).as(StepVerifier::create)
+                .expectNext(2L, 1L).verifyComplete();
+        cache.findById(1L).as(StepVerifier::create).expectNextCount(1).verifyComplete();
+
+        assertThat(fullLoads).hasValue(1);
+        assertThat(idLoads).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("Should reload after invalidation")
+    void shouldReloadAfterInvalidate() {
+        var cache = cache(Duration.ofMinutes(5));
+        cache.findAll().blockLast();
+
+        table.put(3L, new Genre(3L, "Genre_3"));
+        cache.invalidate();
+
+        cache.findAll().as(StepVerifier::create).expectNextCount(3).verifyComplete();
+        assertThat(fullLoads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Should check a missing id in the database and drop the stale snapshot")
+    void shouldCheckMissesInDatabase() {
+        var cache = cache(Duration.ofMinutes(5));
+        cache.findAll().blockLast();
+        table.put(3L, new Genre(3L, "Genre_3"));
+
+        cache.findAllById(List.of(1L, 3L, 9L)).map(Genre::getId).as(StepVerifier::create)
+                .expectNext(1L, 3L).verifyComplete();
+        cache.findById(3L).as(StepVerifier::create).expectNextCount(1).verifyComplete();
+
+        assertThat(idLoads).hasValue(1);
+        assertThat(fullLoads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Should serve a stale snapshot at once and refresh it in the background")
+    void shouldRefreshStaleSnapshotInBackground() {
+        var cache = cache(Duration.ZERO);
+        cache.findAll().blockLast();
+        table.put(3L, new Genre(3L, "Genre_3"));
+
+        cache.findAll().as(StepVerifier::create).expectNextCount(2).verifyComplete();
+        assertThat(fullLoads).hasValue(2);
+        cache.findAll().as(StepVerifier::create).expectNextCount(3).verifyComplete();
+    }
+}
@@ -10,6 +10,8 @@ import reactor.test.StepVerifier;
 import ru.otus.hw.CommonContext;
 import ru.otus.hw.TestData;
 import ru.otus.hw.exceptions.EntityNotFoundException;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
 
 import java.util.Set;
 
@@ -62,6 +64,47 @@ class BookServiceTest extends CommonContext {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("streamAll returns books after the given id in id order")
+    void streamAllAfter() {
+        bookService.streamAll(1L)
+                .map(Book::getId)
+                .as(StepVerifier::create)
+                .expectNext(2L, 3L)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("insert returns the same aggregate as a later read")
+    void insertReturnsAggregate() {
+        bookService.insert("New", 2L, Set.of(5L, 1L, 3L))
+                .flatMap(inserted -> bookService.getById(inserted.getId())
+                        .map(read -> {
+                            assertThat(inserted).isEqualTo(read);
+                            return inserted;
+                        }))
+                .as(StepVerifier::create)
+                .assertNext(b -> {
+                    assertThat(b.getAuthor().getFullName()).isEqualTo("Author_2");
+                    assertThat(b.getGenres()).extracting(Genre::getId).containsExactly(1L, 3L, 5L);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("update returns the changed aggregate")
+    void updateReturnsAggregate() {
+        bookService.update(1L, "Edited", 3L, Set.of(6L))
+                .as(StepVerifier::create)
+                .assertNext(b -> {
+                    assertThat(b.getId()).isEqualTo(1L);
+                    assertThat(b.getTitle()).isEqualTo("Edited");
+                    assertThat(b.getAuthor().getFullName()).isEqualTo("Author_3");
+                    assertThat(b.getGenres()).extracting(Genre::getName).containsExactly("Genre_6");
+                })
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("insert should error when author does not exist")
     void insertMissingAuthor() {
@@ -0,0 +1,77 @@
+package ru.otus.hw.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.test.StepVerifier;
+import ru.otus.hw.CommonContext;
+import ru.otus.hw.TestData;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.GenreRepository;
+import ru.otus.hw.repositories.cache.ReferenceCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class GenreServiceTest extends CommonContext {
+
+    @Autowired
+    GenreService genreService;
+
+    @Autowired
+    GenreRepository genreRepository;
+
+    @Autowired
+    ReferenceCache<Genre> genreCache;
+
+    @Autowired
+    TransactionalOperator tx;
+
+    @Autowired
+    protected TestData data;
+
+    @BeforeEach
+    void setUp() {
+        data.resetAndSeed();
+        genreCache.invalidate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        data.cleanAll();
+    }
+
+    @Test
+    @DisplayName("findAll sees a genre saved through the repository")
+    void findAllAfterSave() {
+        genreService.findAll().as(StepVerifier::create).expectNextCount(6).verifyComplete();
+
+        genreRepository.save(new Genre(null, "Genre_7")).block();
+
+        genreService.findAll().map(Genre::getName).collectList()
+                .as(StepVerifier::create)
+                .assertNext(names -> assertThat(names).hasSize(7).contains("Genre_7"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("findAll sees a genre once its transaction commits, even if read inside it")
+    void findAllAfterCommit() {
+        genreRepository.save(new Genre(null, "Genre_7"))
+                .thenMany(genreService.findAll())
+                .count()
+                .as(tx::transactional)
+                .as(StepVerifier::create)
+                .expectNext(6L)
+                .verifyComplete();
+
+        genreService.findAll().map(Genre::getName).collectList()
+                .as(StepVerifier::create)
+                .assertNext(names -> assertThat(names).hasSize(7).contains("Genre_7"))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,98 @@
+package ru.otus.hw.bench;
+
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import ru.otus.hw.batch.rdbms2mongo.bson.RawDocumentEncoders;
+import ru.otus.hw.persistence.mongo.model.AuthorDocument;
+import ru.otus.hw.persistence.mongo.model.BookDocument;
+import ru.otus.hw.persistence.mongo.model.GenreDocument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU и аллокации на один документ в писателях: подготовка элемента bulk-upsert книги через
+ * {@code MongoConverter} ({@code Document} + {@code Query} + опции) против {@code RawDocumentEncoders}
+ * ({@code RawBsonDocument} + {@code ReplaceOneModel}). Сама отправка в Mongo не меряется —
+ * её сравнивает {@link MigrationJobBenchmark} с {@code -p writer=...}.
+ * Запуск: main из IDE после {@code mvn -Pjmh test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentEncodingBenchmark {
+
+    private static final ReplaceOptions UPSERT = new ReplaceOptions().upsert(true);
+
+    private MappingMongoConverter converter;
+
+    private BookDocument book;
+
+    @Setup
+    public void setUp() {
+        var conversions = new MongoCustomConversions(List.of());
+        var context = new MongoMappingContext();
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        context.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        var genres = new ArrayList<GenreDocument>();
+        for (int i = 0; i < 3; i++) {
+            genres.add(new GenreDocument(new ObjectId(), "Genre_" + i));
+        }
+        book = new BookDocument(new ObjectId(), "Book_1", new AuthorDocument(new ObjectId(), "Author_1"), genres);
+    }
+
+    @Benchmark
+    public Object converter() {
+        var doc = new Document();
+        converter.write(book, doc);
+        var query = Query.query(Criteria.where("_id").is(doc.get("_id")));
+        return new Object[]{query, doc, new FindAndReplaceOptions().upsert()};
+    }
+
+    @Benchmark
+    public ReplaceOneModel<RawBsonDocument> rawBson() {
+        var filter = new BsonDocument("_id", new BsonObjectId(RawDocumentEncoders.BOOK.id(book)));
+        return new ReplaceOneModel<>(filter, RawDocumentEncoders.BOOK.encode(book), UPSERT);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DocumentEncodingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
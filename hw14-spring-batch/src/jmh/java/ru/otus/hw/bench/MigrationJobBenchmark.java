@@ -0,0 +1,148 @@
+package ru.otus.hw.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.otus.hw.Application;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный прогон rdbmsToMongoJob на синтетических данных в H2 и встроенном Mongo для каждого сочетания
+ * {@code app.batch.id-mapping.mode}, {@code app.batch.reader} и {@code app.batch.writer}.
+ * Контекст поднимается заново на каждую итерацию, поэтому каждый прогон — холодный:
+ * пустой Mongo и пустые кэши.
+ * Время — SingleShotTime на прогон, GC-профайлер даёт аллокации на прогон, а после прогона
+ * печатается занятая куча (для stored в ней остаются кэши id_mappings).
+ * Сравнить только читатели: {@code -p idMapping=deterministic}, чтобы запись id_mappings не размывала разницу.
+ * Запуск: main из IDE после {@code mvn -Pjmh test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class MigrationJobBenchmark {
+
+    private static final int GENRES = 50;
+
+    private static final int COMMENTS_PER_BOOK = 5;
+
+    @Param({"stored", "deterministic"})
+    public String idMapping;
+
+    @Param({"jpa", "jdbc"})
+    public String reader;
+
+    @Param({"converter", "raw-bson"})
+    public String writer;
+
+    @Param({"20000"})
+    public int books;
+
+    private ConfigurableApplicationContext context;
+
+    private JobLauncher launcher;
+
+    private Job job;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        context = new SpringApplicationBuilder(Application.class)
+                .properties(
+                        "spring.main.web-application-type=none",
+                        "spring.main.banner-mode=off",
+                        "spring.data.mongodb.database=bench_" + UUID.randomUUID().toString().replace("-", ""),
+                        "app.batch.id-mapping.mode=" + idMapping,
+                        "app.batch.reader=" + reader,
+                        "app.batch.writer=" + writer,
+                        "logging.level.root=WARN")
+                .run();
+        launcher = context.getBean(JobLauncher.class);
+        job = context.getBean("rdbmsToMongoJob", Job.class);
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        System.gc();
+        var runtime = Runtime.getRuntime();
+        System.out.printf("%n[%s/%s/%s] heap used after run: %d MiB%n",
+                idMapping, reader, writer, (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+        context.close();
+    }
+
+    @Benchmark
+    public BatchStatus migrate() throws Exception {
+        var execution = launcher.run(job, new JobParametersBuilder()
+                .addLong("time", System.nanoTime())
+                .toJobParameters());
+        if (execution.getStatus() != BatchStatus.COMPLETED) {
+            throw new IllegalStateException("Migration failed: " + execution.getAllFailureExceptions());
+        }
+        return execution.getStatus();
+    }
+
+    private void seed(JdbcTemplate jdbc) {
+        int authors = Math.max(1, books / 10);
+        jdbc.batchUpdate("insert into authors(id, full_name) values (?, ?)",
+                rows(authors, i -> new Object[]{i, "Author_" + i}));
+        jdbc.batchUpdate("insert into genres(id, name) values (?, ?)",
+                rows(GENRES, i -> new Object[]{i, "Genre_" + i}));
+        jdbc.batchUpdate("insert into books(id, title, author_id) values (?, ?, ?)",
+                rows(books, i -> new Object[]{i, "Book_" + i, 1 + i % authors}));
+        jdbc.batchUpdate("insert into books_genres(book_id, genre_id) values (?, ?)",
+                rows(books, i -> new Object[]{i, 1 + i % GENRES}));
+        var createdAt = Timestamp.valueOf(LocalDateTime.of(2025, 1, 1, 0, 0));
+        jdbc.batchUpdate("insert into comments(id, text, book_id, created_at) values (?, ?, ?, ?)",
+                rows(books * COMMENTS_PER_BOOK, i -> new Object[]{i, "Comment_" + i,
+                        1 + (i - 1) / COMMENTS_PER_BOOK, createdAt}));
+    }
+
+    private static List<Object[]> rows(int count, RowFactory factory) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            rows.add(factory.row(i));
+        }
+        return rows;
+    }
+
+    @FunctionalInterface
+    private interface RowFactory {
+        Object[] row(int id);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MigrationJobBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
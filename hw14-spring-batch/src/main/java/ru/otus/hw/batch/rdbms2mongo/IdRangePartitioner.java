@@ -0,0 +1,88 @@
+package ru.otus.hw.batch.rdbms2mongo;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.otus.hw.config.BatchProperties;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Делит таблицу на непрерывные диапазоны id [minId..maxId] примерно равного числа строк.
+ * Границы берутся по рангу строки, а не делением min..max на равные отрезки, поэтому дыры в id
+ * не дают пустых или перегруженных партиций. Ранжирование — один проход по индексу PK на запуск шага,
+ * дальше каждая партиция читает свой диапазон по индексу.
+ * <p>
+ * С {@link BatchProperties.Partitioning} число партиций выводится из числа строк и целевого размера
+ * партиции ({@code gridSize} шага — только верхняя граница), а размер чанка партиции кладётся
+ * в её контекст под {@link #CHUNK_SIZE_KEY}.
+ */
+public class IdRangePartitioner implements Partitioner {
+
+    public static final String MIN_ID_KEY = "minId";
+
+    public static final String MAX_ID_KEY = "maxId";
+
+    public static final String CHUNK_SIZE_KEY = "chunkSize";
+
+    private final JdbcTemplate jdbc;
+
+    private final String table;
+
+    private final BatchProperties.Partitioning sizing;
+
+    /**
+     * @param sizing {@code null} — ровно {@code gridSize} партиций (или меньше, если строк меньше), без размера чанка
+     */
+    public IdRangePartitioner(JdbcTemplate jdbc, String table, BatchProperties.Partitioning sizing) {
+        this.jdbc = jdbc;
+        this.table = table;
+        this.sizing = sizing;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+        var stats = jdbc.queryForMap("select count(*) cnt, min(id) min_id, max(id) max_id from " + table);
+        long count = ((Number) stats.get("cnt")).longValue();
+        if (count == 0) {
+            partitions.put("p0", range(1, 0, 0));
+            return partitions;
+        }
+
+        long min = ((Number) stats.get("min_id")).longValue();
+        long max = ((Number) stats.get("max_id")).longValue();
+        int grid = sizing == null ? Math.max(1, gridSize) : sizing.gridSize(count, gridSize);
+        long rowsPerPartition = -Math.floorDiv(-count, grid);
+        List<Long> upperBounds = jdbc.queryForList("""
+                select id from (
+                    select id, row_number() over (order by id) rn from %s
+                ) ranked
+                where mod(rn, ?) = 0
+                order by id
+                """.formatted(table), Long.class, rowsPerPartition);
+
+        long lower = min;
+        for (long upper : upperBounds) {
+            if (upper >= max) {
+                break;
+            }
+            partitions.put("p" + partitions.size(), range(lower, upper, rowsPerPartition));
+            lower = upper + 1;
+        }
+        partitions.put("p" + partitions.size(), range(lower, max, rowsPerPartition));
+        return partitions;
+    }
+
+    private ExecutionContext range(long minId, long maxId, long rows) {
+        var ctx = new ExecutionContext();
+        ctx.putLong(MIN_ID_KEY, minId);
+        ctx.putLong(MAX_ID_KEY, maxId);
+        if (sizing != null) {
+            ctx.putInt(CHUNK_SIZE_KEY, sizing.chunkSize(rows));
+        }
+        return ctx;
+    }
+}
@@ -0,0 +1,23 @@
+package ru.otus.hw.batch.rdbms2mongo;
+
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.otus.hw.config.BatchProperties;
+
+/**
+ * Размер чанка партиции, посчитанный {@link IdRangePartitioner} по числу её строк.
+ * Бин в скоупе шага, поэтому у каждой партиции свой экземпляр со своим размером.
+ */
+@Component
+@StepScope
+public class PartitionChunkPolicy extends SimpleCompletionPolicy {
+
+    public PartitionChunkPolicy(
+            @Value("#{stepExecutionContext['" + IdRangePartitioner.CHUNK_SIZE_KEY + "']}") Integer chunkSize,
+            BatchProperties props
+    ) {
+        super(chunkSize == null ? props.getPartitioning().getMinChunkSize() : chunkSize);
+    }
+}
@@ -0,0 +1,174 @@
+package ru.otus.hw.batch.rdbms2mongo;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.otus.hw.batch.rdbms2mongo.delta.DeletedRow;
+import ru.otus.hw.batch.rdbms2mongo.delta.DeletedRowsWriter;
+import ru.otus.hw.batch.rdbms2mongo.delta.DeltaWindowPlanner;
+import ru.otus.hw.batch.rdbms2mongo.idmap.IdMappingService;
+import ru.otus.hw.batch.rdbms2mongo.idmap.IdPrefetchListener;
+import ru.otus.hw.batch.rdbms2mongo.listener.JobLoggingListener;
+import ru.otus.hw.batch.rdbms2mongo.listener.StepLoggingListener;
+import ru.otus.hw.batch.rdbms2mongo.metrics.MigrationMetrics;
+import ru.otus.hw.config.BatchProperties;
+import ru.otus.hw.persistence.mongo.model.AuthorDocument;
+import ru.otus.hw.persistence.mongo.model.BookDocument;
+import ru.otus.hw.persistence.mongo.model.CommentDocument;
+import ru.otus.hw.persistence.mongo.model.GenreDocument;
+import ru.otus.hw.persistence.rdbms.model.Author;
+import ru.otus.hw.persistence.rdbms.model.Book;
+import ru.otus.hw.persistence.rdbms.model.Comment;
+import ru.otus.hw.persistence.rdbms.model.Genre;
+
+/**
+ * Дельта-миграция: переносит только строки, изменённые с прошлого запуска, и удаляет документы
+ * удалённых строк. Процессоры, предзагрузка id и писатели — те же, что у полной миграции; план
+ * вставки в контексте этой джобы отсутствует, поэтому писатели работают upsert'ом.
+ * Изменений обычно немного, так что шаги идут последовательно и без партиций.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class R2mDeltaJobConfig {
+
+    private final JobRepository jobRepository;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final BatchProperties props;
+
+    private final MongoOperations mongo;
+
+    private final IdMappingService ids;
+
+    private final DeltaWindowPlanner windowPlanner;
+
+    private final MigrationMetrics metrics;
+
+
+    private final ItemReader<Author> authorDeltaReader;
+
+    private final ItemProcessor<Author, AuthorDocument> authorProcessor;
+
+    private final ItemWriter<AuthorDocument> authorWriter;
+
+
+    private final ItemReader<Genre> genreDeltaReader;
+
+    private final ItemProcessor<Genre, GenreDocument> genreProcessor;
+
+    private final ItemWriter<GenreDocument> genreWriter;
+
+
+    private final ItemReader<Book> bookDeltaReader;
+
+    private final ItemProcessor<Book, BookDocument> bookProcessor;
+
+    private final ItemWriter<BookDocument> bookWriter;
+
+
+    private final ItemReader<Comment> commentDeltaReader;
+
+    private final ItemProcessor<Comment, CommentDocument> commentProcessor;
+
+    private final ItemWriter<CommentDocument> commentWriter;
+
+
+    private final ItemReader<DeletedRow> deletedRowReader;
+
+
+    private final IdPrefetchListener<Author> authorIdPrefetch;
+
+    private final IdPrefetchListener<Genre> genreIdPrefetch;
+
+    private final IdPrefetchListener<Book> bookIdPrefetch;
+
+    private final IdPrefetchListener<Comment> commentIdPrefetch;
+
+    @Bean
+    public Step deltaWindowStep() {
+        return new StepBuilder("deltaWindowStep", jobRepository)
+                .tasklet(windowPlanner::open, transactionManager)
+                .build();
+    }
+
+    @Bean
+    public Step deltaMarksStep() {
+        return new StepBuilder("deltaMarksStep", jobRepository)
+                .tasklet(windowPlanner::commit, transactionManager)
+                .build();
+    }
+
+    @Bean
+    public Step authorsDeltaStep() {
+        return deltaStep("authors", authorDeltaReader, authorProcessor, authorWriter, authorIdPrefetch);
+    }
+
+    @Bean
+    public Step genresDeltaStep() {
+        return deltaStep("genres", genreDeltaReader, genreProcessor, genreWriter, genreIdPrefetch);
+    }
+
+    @Bean
+    public Step booksDeltaStep() {
+        return deltaStep("books", bookDeltaReader, bookProcessor, bookWriter, bookIdPrefetch);
+    }
+
+    @Bean
+    public Step commentsDeltaStep() {
+        return deltaStep("comments", commentDeltaReader, commentProcessor, commentWriter, commentIdPrefetch);
+    }
+
+    @Bean
+    public Step deletesDeltaStep() {
+        return new StepBuilder("deletesDeltaStep", jobRepository)
+                .<DeletedRow, DeletedRow>chunk(props.getDelta().getChunkSize(), transactionManager)
+                .reader(deletedRowReader)
+                .writer(metrics.timedWriter(DeltaWindowPlanner.DELETED_ROWS, "delete",
+                        new DeletedRowsWriter(mongo, ids)))
+                .listener(metrics.stepListener("deletesDeltaStep"))
+                .listener(new StepLoggingListener("deletes"))
+                .build();
+    }
+
+    /**
+     * Удаления идут последними: строка, изменённая и затем удалённая в одном окне, не возвращается.
+     */
+    @Bean
+    public Job rdbmsToMongoDeltaJob() {
+        return new JobBuilder("rdbmsToMongoDeltaJob", jobRepository)
+                .listener(new JobLoggingListener())
+                .start(deltaWindowStep())
+                .next(authorsDeltaStep())
+                .next(genresDeltaStep())
+                .next(booksDeltaStep())
+                .next(commentsDeltaStep())
+                .next(deletesDeltaStep())
+                .next(deltaMarksStep())
+                .build();
+    }
+
+    private <I, O> Step deltaStep(String entity, ItemReader<I> reader, ItemProcessor<I, O> processor,
+                                  ItemWriter<O> writer, IdPrefetchListener<I> prefetch) {
+        String name = entity + "DeltaStep";
+        return new StepBuilder(name, jobRepository)
+                .<I, O>chunk(props.getDelta().getChunkSize(), transactionManager)
+                .reader(reader)
+                .processor(processor)
+                .writer(writer)
+                .listener(metrics.stepListener(name))
+                .listener(prefetch)
+                .listener(new StepLoggingListener(entity))
+                .build();
+    }
+}
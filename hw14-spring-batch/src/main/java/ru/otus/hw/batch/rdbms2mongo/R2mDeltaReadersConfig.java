@@ -0,0 +1,143 @@
+package ru.otus.hw.batch.rdbms2mongo;
+
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.database.JdbcCursorItemReader;
+import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.otus.hw.batch.rdbms2mongo.delta.DeletedRow;
+import ru.otus.hw.batch.rdbms2mongo.delta.DeltaWindowPlanner;
+import ru.otus.hw.persistence.rdbms.model.Author;
+import ru.otus.hw.persistence.rdbms.model.Book;
+import ru.otus.hw.persistence.rdbms.model.Comment;
+import ru.otus.hw.persistence.rdbms.model.Genre;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+
+/**
+ * Читатели дельта-джобы: только строки с {@code updated_at} в окне {@code (from, until]} из контекста
+ * джобы (см. {@link DeltaWindowPlanner}). Всегда JDBC, независимо от {@code app.batch.reader}: строки
+ * разбираются теми же функциями, что и в {@link R2mJdbcReadersConfig}.
+ */
+@Configuration
+public class R2mDeltaReadersConfig {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String FROM = "#{jobExecutionContext['" + DeltaWindowPlanner.FROM_KEY_PREFIX;
+
+    private static final String UNTIL = "#{jobExecutionContext['" + DeltaWindowPlanner.UNTIL_KEY + "']}";
+
+    @Bean
+    @StepScope
+    public JdbcCursorItemReader<Author> authorDeltaReader(
+            DataSource dataSource,
+            @Value(FROM + "authors']}") String from,
+            @Value(UNTIL) String until
+    ) {
+        return new JdbcCursorItemReaderBuilder<Author>()
+                .name("authorDeltaReader")
+                .dataSource(dataSource)
+                .sql("select id, full_name from authors where updated_at > ? and updated_at <= ? order by id")
+                .queryArguments(LocalDateTime.parse(from), LocalDateTime.parse(until))
+                .rowMapper(R2mJdbcReadersConfig::toAuthor)
+                .fetchSize(FETCH_SIZE)
+                .saveState(true)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public JdbcCursorItemReader<Genre> genreDeltaReader(
+            DataSource dataSource,
+            @Value(FROM + "genres']}") String from,
+            @Value(UNTIL) String until
+    ) {
+        return new JdbcCursorItemReaderBuilder<Genre>()
+                .name("genreDeltaReader")
+                .dataSource(dataSource)
+                .sql("select id, name from genres where updated_at > ? and updated_at <= ? order by id")
+                .queryArguments(LocalDateTime.parse(from), LocalDateTime.parse(until))
+                .rowMapper(R2mJdbcReadersConfig::toGenre)
+                .fetchSize(FETCH_SIZE)
+                .saveState(true)
+                .build();
+    }
+
+    /**
+     * Книга изменилась, если изменилась её строка, добавилась или удалилась связь с жанром.
+     */
+    @Bean
+    @StepScope
+    public JdbcCursorItemReader<Book> bookDeltaReader(
+            DataSource dataSource,
+            @Value(FROM + "books']}") String from,
+            @Value(UNTIL) String until
+    ) {
+        var lower = LocalDateTime.parse(from);
+        var upper = LocalDateTime.parse(until);
+        return new JdbcCursorItemReaderBuilder<Book>()
+                .name("bookDeltaReader")
+                .dataSource(dataSource)
+                .sql(R2mJdbcReadersConfig.booksWithGenres("""
+                        where b.id in (
+                            select id from books where updated_at > ? and updated_at <= ?
+                            union
+                            select book_id from books_genres where updated_at > ? and updated_at <= ?
+                            union
+                            select row_id from deleted_rows
+                            where table_name = 'books_genres' and deleted_at > ? and deleted_at <= ?
+                        )"""))
+                .queryArguments(lower, upper, lower, upper, lower, upper)
+                .rowMapper(R2mJdbcReadersConfig::toBook)
+                .fetchSize(FETCH_SIZE)
+                .saveState(true)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public JdbcCursorItemReader<Comment> commentDeltaReader(
+            DataSource dataSource,
+            @Value(FROM + "comments']}") String from,
+            @Value(UNTIL) String until
+    ) {
+        return new JdbcCursorItemReaderBuilder<Comment>()
+                .name("commentDeltaReader")
+                .dataSource(dataSource)
+                .sql("""
+                        select id, text, book_id, created_at from comments
+                        where updated_at > ? and updated_at <= ?
+                        order by id
+                        """)
+                .queryArguments(LocalDateTime.parse(from), LocalDateTime.parse(until))
+                .rowMapper(R2mReadersConfig::toComment)
+                .fetchSize(FETCH_SIZE)
+                .saveState(true)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public JdbcCursorItemReader<DeletedRow> deletedRowReader(
+            DataSource dataSource,
+            @Value(FROM + DeltaWindowPlanner.DELETED_ROWS + "']}") String from,
+            @Value(UNTIL) String until
+    ) {
+        return new JdbcCursorItemReaderBuilder<DeletedRow>()
+                .name("deletedRowReader")
+                .dataSource(dataSource)
+                .sql("""
+                        select table_name, row_id from deleted_rows
+                        where deleted_at > ? and deleted_at <= ? and table_name <> 'books_genres'
+                        order by id
+                        """)
+                .queryArguments(LocalDateTime.parse(from), LocalDateTime.parse(until))
+                .rowMapper((rs, rowNum) -> new DeletedRow(rs.getString("table_name"), rs.getLong("row_id")))
+                .fetchSize(FETCH_SIZE)
+                .saveState(true)
+                .build();
+    }
+}
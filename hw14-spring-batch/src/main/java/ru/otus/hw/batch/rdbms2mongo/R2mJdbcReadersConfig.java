@@ -0,0 +1,145 @@
+package ru.otus.hw.batch.rdbms2mongo;
+
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.database.JdbcCursorItemReader;
+import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.otus.hw.persistence.rdbms.model.Author;
+import ru.otus.hw.persistence.rdbms.model.Book;
+import ru.otus.hw.persistence.rdbms.model.Comment;
+import ru.otus.hw.persistence.rdbms.model.Genre;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Читатели режима {@code app.batch.reader=jdbc}: плоские строки курсором напрямую из JDBC, без
+ * persistence context, снимков для dirty checking и ленивой подгрузки жанров. Строки собираются в
+ * отсоединённые сущности — это просто носители полей для тех же мапперов, что и в JPA-режиме,
+ * поэтому процессоры, предзагрузка id и писатели не меняются.
+ * Жанры книги агрегируются в самом запросе, так что на книгу приходится ровно одна строка.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.batch", name = "reader", havingValue = "jdbc")
+public class R2mJdbcReadersConfig {
+
+    private static final int FETCH_SIZE = 1000;
+
+    @Bean
+    @StepScope
+    public JdbcCursorItemReader<Author> authorReader(DataSource dataSource) {
+        return new JdbcCursorItemReaderBuilder<Author>()
+                .name("authorReader")
+                .dataSource(dataSource)
+                .sql("select id, full_name from authors order by id")
+                .rowMapper(R2mJdbcReadersConfig::toAuthor)
+                .fetchSize(FETCH_SIZE)
+                .saveState(true)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public JdbcCursorItemReader<Genre> genreReader(DataSource dataSource) {
+        return new JdbcCursorItemReaderBuilder<Genre>()
+                .name("genreReader")
+                .dataSource(dataSource)
+                .sql("select id, name from genres order by id")
+                .rowMapper(R2mJdbcReadersConfig::toGenre)
+                .fetchSize(FETCH_SIZE)
+                .saveState(true)
+                .build();
+    }
+
+    /**
+     * Диапазон партиции книг. {@code array_agg} есть и в H2, и в PostgreSQL. У книги без жанров
+     * left join даёт массив из одного {@code null} — такие элементы пропускаются при разборе.
+     */
+    @Bean
+    @StepScope
+    public JdbcCursorItemReader<Book> bookReader(
+            DataSource dataSource,
+            @Value("#{stepExecutionContext['" + IdRangePartitioner.MIN_ID_KEY + "']}") Long minId,
+            @Value("#{stepExecutionContext['" + IdRangePartitioner.MAX_ID_KEY + "']}") Long maxId
+    ) {
+        return new JdbcCursorItemReaderBuilder<Book>()
+                .name("bookReader-" + minId)
+                .dataSource(dataSource)
+                .sql(booksWithGenres("where b.id between ? and ?"))
+                .queryArguments(minId, maxId)
+                .rowMapper(R2mJdbcReadersConfig::toBook)
+                .fetchSize(FETCH_SIZE)
+                .saveState(true)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public JdbcCursorItemReader<Comment> commentReader(DataSource dataSource) {
+        return new JdbcCursorItemReaderBuilder<Comment>()
+                .name("commentReader")
+                .dataSource(dataSource)
+                .sql("select id, text, book_id, created_at from comments order by id")
+                .rowMapper(R2mReadersConfig::toComment)
+                .fetchSize(FETCH_SIZE)
+                .saveState(true)
+                .build();
+    }
+
+    /**
+     * Книги с автором и жанрами одной строкой на книгу; {@code where} ограничивает набор книг.
+     */
+    static String booksWithGenres(String where) {
+        return """
+                select b.id, b.title, a.id as author_id, a.full_name as author_name,
+                       array_agg(g.id order by g.id) as genre_ids,
+                       array_agg(g.name order by g.id) as genre_names
+                from books b
+                join authors a on a.id = b.author_id
+                left join books_genres bg on bg.book_id = b.id
+                left join genres g on g.id = bg.genre_id
+                %s
+                group by b.id, b.title, a.id, a.full_name
+                order by b.id
+                """.formatted(where);
+    }
+
+    static Author toAuthor(ResultSet rs, int rowNum) throws SQLException {
+        return new Author(rs.getLong("id"), rs.getString("full_name"));
+    }
+
+    static Genre toGenre(ResultSet rs, int rowNum) throws SQLException {
+        return new Genre(rs.getLong("id"), rs.getString("name"));
+    }
+
+    static Book toBook(ResultSet rs, int rowNum) throws SQLException {
+        var author = new Author(rs.getLong("author_id"), rs.getString("author_name"));
+        Object[] genreIds = toArray(rs.getArray("genre_ids"));
+        Object[] genreNames = toArray(rs.getArray("genre_names"));
+        List<Genre> genres = new ArrayList<>(genreIds.length);
+        for (int i = 0; i < genreIds.length; i++) {
+            if (genreIds[i] != null) {
+                genres.add(new Genre(((Number) genreIds[i]).longValue(), (String) genreNames[i]));
+            }
+        }
+        return new Book(rs.getLong("id"), rs.getString("title"), author, genres);
+    }
+
+    private static Object[] toArray(Array array) throws SQLException {
+        if (array == null) {
+            return new Object[0];
+        }
+        try {
+            return (Object[]) array.getArray();
+        } finally {
+            array.free();
+        }
+    }
+}
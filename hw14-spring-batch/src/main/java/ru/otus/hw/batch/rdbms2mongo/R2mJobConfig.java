@@ -14,10 +14,15 @@ import org.springframework.batch.item.ItemReader;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
-import ru.otus.hw.batch.rdbms2mongo.listener.CommentPartitionInfoListener;
+import ru.otus.hw.batch.rdbms2mongo.idmap.IdPrefetchListener;
+import ru.otus.hw.batch.rdbms2mongo.listener.PartitionInfoListener;
+import ru.otus.hw.batch.rdbms2mongo.load.InitialLoadPlanner;
+import ru.otus.hw.batch.rdbms2mongo.metrics.MigrationMetrics;
 import ru.otus.hw.persistence.rdbms.model.Author;
 import ru.otus.hw.persistence.rdbms.model.Book;
 import ru.otus.hw.persistence.rdbms.model.Comment;
@@ -41,6 +46,8 @@ public class R2mJobConfig {
 
     private final BatchProperties props;
 
+    private final JdbcTemplate jdbcTemplate;
+
 
     private final ItemReader<Author> authorReader;
 
@@ -71,6 +78,25 @@ public class R2mJobConfig {
 
     private final ItemReader<Comment> partitionedCommentReader;
 
+
+    private final IdPrefetchListener<Author> authorIdPrefetch;
+
+    private final IdPrefetchListener<Genre> genreIdPrefetch;
+
+    private final IdPrefetchListener<Book> bookIdPrefetch;
+
+    private final IdPrefetchListener<Comment> commentIdPrefetch;
+
+    private final InitialLoadPlanner loadPlanner;
+
+    private final PartitionChunkPolicy partitionChunkPolicy;
+
+    private final MigrationMetrics metrics;
+
+    private final Step deltaWindowStep;
+
+    private final Step deltaMarksStep;
+
     @Bean
     public TaskExecutor splitExecutor() {
         var threadPool = new ThreadPoolTaskExecutor();
@@ -83,6 +109,21 @@ public class R2mJobConfig {
         return threadPool;
     }
 
+    /**
+     * Отдельный пул для партиций: у {@link #splitExecutor()} нет очереди, и партиции книг и комментариев
+     * вместе с потоками сплита не поместились бы в него. Лишние партиции ждут в очереди.
+     */
+    @Bean
+    public TaskExecutor partitionExecutor() {
+        var threadPool = new ThreadPoolTaskExecutor();
+        int threads = Math.max(1, props.getPartitioning().getThreads());
+        threadPool.setThreadNamePrefix("partition-");
+        threadPool.setCorePoolSize(threads);
+        threadPool.setMaxPoolSize(threads);
+        threadPool.initialize();
+        return threadPool;
+    }
+
     @Bean
     public Step authorsStep() {
         return new StepBuilder("authorsStep", jobRepository)
@@ -90,6 +131,8 @@ public class R2mJobConfig {
                 .reader(authorReader)
                 .processor(authorProcessor)
                 .writer(authorWriter)
+                .listener(metrics.stepListener("authorsStep"))
+                .listener(authorIdPrefetch)
                 .listener(new StepLoggingListener("authors"))
                 .listener(new ThrottledChunkProgressListener("authors",
                         props.getProgressListeners().getAuthors())
@@ -104,6 +147,8 @@ public class R2mJobConfig {
                 .reader(genreReader)
                 .processor(genreProcessor)
                 .writer(genreWriter)
+                .listener(metrics.stepListener("genresStep"))
+                .listener(genreIdPrefetch)
                 .listener(new StepLoggingListener("genres"))
                 .listener(new ThrottledChunkProgressListener("genres",
                         props.getProgressListeners().getGenres())
@@ -112,12 +157,15 @@ public class R2mJobConfig {
     }
 
     @Bean
-    public Step booksStep() {
-        return new StepBuilder("booksStep", jobRepository)
-                .<Book, BookDocument>chunk(props.getChunkSizes().getBooks(), transactionManager)
+    public Step booksWorkerStep() {
+        return new StepBuilder("booksWorker", jobRepository)
+                .<Book, BookDocument>chunk(partitionChunkPolicy, transactionManager)
                 .reader(bookReader)
                 .processor(bookProcessor)
                 .writer(bookWriter)
+                .listener(metrics.stepListener("booksWorker"))
+                .listener(bookIdPrefetch)
+                .listener(new PartitionInfoListener("books"))
                 .listener(new StepLoggingListener("books"))
                 .listener(new ThrottledChunkProgressListener("books",
                         props.getProgressListeners().getBooks())
@@ -125,14 +173,27 @@ public class R2mJobConfig {
                 .build();
     }
 
+    @Bean
+    public Step booksPartitionedStep() {
+        var partitioning = props.getPartitioning();
+        return new StepBuilder("booksPartitioned", jobRepository)
+                .partitioner("booksWorker", new IdRangePartitioner(jdbcTemplate, "books", partitioning))
+                .step(booksWorkerStep())
+                .gridSize(partitioning.getMaxGridSize())
+                .taskExecutor(partitionExecutor())
+                .build();
+    }
+
     @Bean
     public Step commentsWorkerStep() {
         return new StepBuilder("commentsWorker", jobRepository)
-                .<Comment, CommentDocument>chunk(props.getChunkSizes().getComments(), transactionManager)
+                .<Comment, CommentDocument>chunk(partitionChunkPolicy, transactionManager)
                 .reader(partitionedCommentReader)
                 .processor(commentProcessor)
                 .writer(commentWriter)
-                .listener(new CommentPartitionInfoListener())
+                .listener(metrics.stepListener("commentsWorker"))
+                .listener(commentIdPrefetch)
+                .listener(new PartitionInfoListener("comments"))
                 .listener(new StepLoggingListener("comments"))
                 .listener(new ThrottledChunkProgressListener("comments",
                         props.getProgressListeners().getComments())
@@ -142,22 +203,46 @@ public class R2mJobConfig {
 
     @Bean
     public Step commentsPartitionedStep() {
-        int partitions = Math.max(1, props.getThreadPool().getCorePoolSize());
+        var partitioning = props.getPartitioning();
         return new StepBuilder("commentsPartitioned", jobRepository)
-                .partitioner("commentsWorker", new RoundRobinPartitioner(partitions))
+                .partitioner("commentsWorker", new IdRangePartitioner(jdbcTemplate, "comments", partitioning))
                 .step(commentsWorkerStep())
-                .gridSize(partitions)
-                .taskExecutor(splitExecutor())
+                .gridSize(partitioning.getMaxGridSize())
+                .taskExecutor(partitionExecutor())
+                .build();
+    }
+
+
+    @Bean
+    public Step prepareLoadStep() {
+        return new StepBuilder("prepareLoadStep", jobRepository)
+                .tasklet(loadPlanner::prepare, transactionManager)
                 .build();
     }
 
+    @Bean
+    public Step createIndexesStep() {
+        return new StepBuilder("createIndexesStep", jobRepository)
+                .tasklet(loadPlanner::finish, transactionManager)
+                .build();
+    }
 
+    /**
+     * Основная джоба ({@code @Primary} для внедрения {@link Job} без имени). Окно дельты открывается
+     * до загрузки, а отметки ставятся после неё: первая дельта заберёт всё, что менялось во время
+     * полной загрузки.
+     */
     @Bean
+    @Primary
     public Job rdbmsToMongoJob() {
         return new JobBuilder("rdbmsToMongoJob", jobRepository)
                 .listener(new JobLoggingListener())
-                .start(parallelAuthorsAndGenres(splitExecutor()))
+                .flow(deltaWindowStep)
+                .next(prepareLoadStep())
+                .next(parallelAuthorsAndGenres(splitExecutor()))
                 .next(parallelBooksAndComments(splitExecutor()))
+                .next(createIndexesStep())
+                .next(deltaMarksStep)
                 .end()
                 .build();
     }
@@ -172,7 +257,7 @@ public class R2mJobConfig {
     private Flow parallelBooksAndComments(TaskExecutor exec) {
         return new FlowBuilder<SimpleFlow>("r2mFlow2")
                 .split(exec)
-                .add(flowOf(booksStep()), flowOf(commentsPartitionedStep()))
+                .add(flowOf(booksPartitionedStep()), flowOf(commentsPartitionedStep()))
                 .build();
     }
 
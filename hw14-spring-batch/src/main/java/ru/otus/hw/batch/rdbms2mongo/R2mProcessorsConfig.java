@@ -5,6 +5,8 @@ import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import ru.otus.hw.batch.rdbms2mongo.idmap.IdMappingService;
+import ru.otus.hw.batch.rdbms2mongo.idmap.IdPrefetchListener;
 import ru.otus.hw.persistence.rdbms.model.Author;
 import ru.otus.hw.persistence.rdbms.model.Book;
 import ru.otus.hw.persistence.rdbms.model.Comment;
@@ -30,6 +32,8 @@ class R2mProcessorsConfig {
 
     private final CommentMapper cm;
 
+    private final IdMappingService ids;
+
     @Bean
     @StepScope
     ItemProcessor<Author, AuthorDocument> authorProcessor() {
@@ -53,4 +57,24 @@ class R2mProcessorsConfig {
     ItemProcessor<Comment, CommentDocument> commentProcessor() {
         return cm::toDocument;
     }
+
+    @Bean
+    IdPrefetchListener<Author> authorIdPrefetch() {
+        return new IdPrefetchListener<>(ids, am::collectIds);
+    }
+
+    @Bean
+    IdPrefetchListener<Genre> genreIdPrefetch() {
+        return new IdPrefetchListener<>(ids, gm::collectIds);
+    }
+
+    @Bean
+    IdPrefetchListener<Book> bookIdPrefetch() {
+        return new IdPrefetchListener<>(ids, bm::collectIds);
+    }
+
+    @Bean
+    IdPrefetchListener<Comment> commentIdPrefetch() {
+        return new IdPrefetchListener<>(ids, cm::collectIds);
+    }
 }
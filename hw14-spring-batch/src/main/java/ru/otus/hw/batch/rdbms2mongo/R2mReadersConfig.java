@@ -3,11 +3,15 @@ package ru.otus.hw.batch.rdbms2mongo;
 import jakarta.persistence.EntityManagerFactory;
 import lombok.RequiredArgsConstructor;
 import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
 import org.springframework.batch.item.database.JpaCursorItemReader;
 import org.springframework.batch.item.database.JpaPagingItemReader;
+import org.springframework.batch.item.database.Order;
+import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
 import org.springframework.batch.item.database.builder.JpaCursorItemReaderBuilder;
 import org.springframework.batch.item.database.builder.JpaPagingItemReaderBuilder;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import ru.otus.hw.persistence.rdbms.model.Author;
@@ -15,8 +19,16 @@ import ru.otus.hw.persistence.rdbms.model.Book;
 import ru.otus.hw.persistence.rdbms.model.Comment;
 import ru.otus.hw.persistence.rdbms.model.Genre;
 
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.Map;
 
+/**
+ * Читатели режима {@code app.batch.reader=jpa} (по умолчанию) и keyset-читатель партиций комментариев,
+ * общий для обоих режимов. JDBC-вариант остальных читателей — {@link R2mJdbcReadersConfig}.
+ */
 @Configuration
 @RequiredArgsConstructor
 public class R2mReadersConfig {
@@ -25,6 +37,7 @@ public class R2mReadersConfig {
 
     @Bean
     @StepScope
+    @ConditionalOnProperty(prefix = "app.batch", name = "reader", havingValue = "jpa", matchIfMissing = true)
     public JpaPagingItemReader<Author> authorReader() {
         return new JpaPagingItemReaderBuilder<Author>()
                 .name("authorReader")
@@ -37,6 +50,7 @@ public class R2mReadersConfig {
 
     @Bean
     @StepScope
+    @ConditionalOnProperty(prefix = "app.batch", name = "reader", havingValue = "jpa", matchIfMissing = true)
     public JpaPagingItemReader<Genre> genreReader() {
         return new JpaPagingItemReaderBuilder<Genre>()
                 .name("genreReader")
@@ -47,24 +61,34 @@ public class R2mReadersConfig {
                 .build();
     }
 
+    /**
+     * Диапазон партиции книг; жанры дочитываются пачками через {@code @BatchSize}.
+     */
     @Bean
     @StepScope
-    public JpaCursorItemReader<Book> bookReader() {
+    @ConditionalOnProperty(prefix = "app.batch", name = "reader", havingValue = "jpa", matchIfMissing = true)
+    public JpaCursorItemReader<Book> bookReader(
+            @Value("#{stepExecutionContext['" + IdRangePartitioner.MIN_ID_KEY + "']}") Long minId,
+            @Value("#{stepExecutionContext['" + IdRangePartitioner.MAX_ID_KEY + "']}") Long maxId
+    ) {
         return new JpaCursorItemReaderBuilder<Book>()
-                .name("bookReader")
+                .name("bookReader-" + minId)
                 .entityManagerFactory(emf)
                 .queryString("""
                         select b
                         from Book b
                         join fetch b.author a
+                        where b.id between :minId and :maxId
                         order by b.id
                         """)
+                .parameterValues(Map.of("minId", minId, "maxId", maxId))
                 .saveState(true)
                 .build();
     }
 
     @Bean
     @StepScope
+    @ConditionalOnProperty(prefix = "app.batch", name = "reader", havingValue = "jpa", matchIfMissing = true)
     public JpaCursorItemReader<Comment> commentReader() {
         return new JpaCursorItemReaderBuilder<Comment>()
                 .name("commentReader")
@@ -74,27 +98,38 @@ public class R2mReadersConfig {
                 .build();
     }
 
+    /**
+     * Keyset-чтение диапазона партиции: {@code where id > :last order by id limit n} вместо OFFSET,
+     * поэтому стоимость страницы не растёт к концу таблицы. Состояние для рестарта — последний
+     * прочитанный id. Строка маппится в {@link Comment} с заглушкой книги: маппер берёт у неё только id.
+     */
     @Bean
     @StepScope
-    public JpaPagingItemReader<Comment> partitionedCommentReader(
-            EntityManagerFactory emf,
-            @Value("#{stepExecutionContext['" + RoundRobinPartitioner.MODULUS_KEY + "']}") Integer modulus,
-            @Value("#{stepExecutionContext['" + RoundRobinPartitioner.REMAINDER_KEY + "']}") Integer remainder
+    public JdbcPagingItemReader<Comment> partitionedCommentReader(
+            DataSource dataSource,
+            @Value("#{stepExecutionContext['" + IdRangePartitioner.MIN_ID_KEY + "']}") Long minId,
+            @Value("#{stepExecutionContext['" + IdRangePartitioner.MAX_ID_KEY + "']}") Long maxId
     ) {
-
-        return new JpaPagingItemReaderBuilder<Comment>()
-                .name("commentReader-p" + remainder)
-                .entityManagerFactory(emf)
-                .queryString("""
-                        select c
-                        from Comment c
-                        where mod(c.id, :m) = :r
-                        order by c.id
-                        """)
-                .parameterValues(Map.of("m", modulus, "r", remainder))
+        return new JdbcPagingItemReaderBuilder<Comment>()
+                .name("commentReader-" + minId)
+                .dataSource(dataSource)
+                .selectClause("id, text, book_id, created_at")
+                .fromClause("comments")
+                .whereClause("id between :minId and :maxId")
+                .sortKeys(Map.of("id", Order.ASCENDING))
+                .parameterValues(Map.of("minId", minId, "maxId", maxId))
+                .rowMapper(R2mReadersConfig::toComment)
                 .pageSize(1000)
                 .saveState(true)
                 .build();
     }
 
+    static Comment toComment(ResultSet rs, int rowNum) throws SQLException {
+        var book = new Book();
+        book.setId(rs.getLong("book_id"));
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        return new Comment(rs.getLong("id"), rs.getString("text"), book,
+                createdAt == null ? null : createdAt.toLocalDateTime());
+    }
+
 }
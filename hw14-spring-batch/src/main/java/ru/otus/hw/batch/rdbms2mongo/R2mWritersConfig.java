@@ -1,9 +1,17 @@
 package ru.otus.hw.batch.rdbms2mongo;
 
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
 import lombok.RequiredArgsConstructor;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.core.BulkOperations;
@@ -11,40 +19,98 @@ import org.springframework.data.mongodb.core.FindAndReplaceOptions;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.util.Assert;
+import ru.otus.hw.batch.rdbms2mongo.bson.RawDocumentEncoder;
+import ru.otus.hw.batch.rdbms2mongo.bson.RawDocumentEncoders;
+import ru.otus.hw.batch.rdbms2mongo.load.InitialLoadPlanner;
+import ru.otus.hw.batch.rdbms2mongo.load.LoadModeItemWriter;
+import ru.otus.hw.batch.rdbms2mongo.metrics.MigrationMetrics;
+import ru.otus.hw.batch.rdbms2mongo.pipeline.PipelinedItemWriter;
+import ru.otus.hw.config.BatchProperties;
 import ru.otus.hw.persistence.mongo.model.AuthorDocument;
 import ru.otus.hw.persistence.mongo.model.BookDocument;
 import ru.otus.hw.persistence.mongo.model.CommentDocument;
 import ru.otus.hw.persistence.mongo.model.GenreDocument;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 @RequiredArgsConstructor
 public class R2mWritersConfig {
 
+    private static final ReplaceOptions UPSERT = new ReplaceOptions().upsert(true);
+
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private static final InsertManyOptions UNORDERED_INSERT = new InsertManyOptions().ordered(false);
+
+    private static final String INSERT_PLAN =
+            "#{jobExecutionContext['" + InitialLoadPlanner.INSERT_COLLECTIONS_KEY + "']}";
+
     private final MongoOperations operations;
 
+    private final BatchProperties props;
+
+    private final MigrationMetrics metrics;
+
     @Bean
     @StepScope
-    public ItemWriter<AuthorDocument> authorWriter() {
-        return bulkUpsert("authors");
+    public PipelinedItemWriter<AuthorDocument> authorWriter(@Value(INSERT_PLAN) String insertPlan) {
+        return writer("authors", RawDocumentEncoders.AUTHOR, insertPlan);
     }
 
     @Bean
     @StepScope
-    public ItemWriter<GenreDocument> genreWriter() {
-        return bulkUpsert("genres");
+    public PipelinedItemWriter<GenreDocument> genreWriter(@Value(INSERT_PLAN) String insertPlan) {
+        return writer("genres", RawDocumentEncoders.GENRE, insertPlan);
     }
 
     @Bean
     @StepScope
-    public ItemWriter<BookDocument> bookWriter() {
-        return bulkUpsert("books");
+    public PipelinedItemWriter<BookDocument> bookWriter(@Value(INSERT_PLAN) String insertPlan) {
+        return writer("books", RawDocumentEncoders.BOOK, insertPlan);
     }
 
     @Bean
     @StepScope
-    public ItemWriter<CommentDocument> commentWriter() {
-        return bulkUpsert("comments");
+    public PipelinedItemWriter<CommentDocument> commentWriter(@Value(INSERT_PLAN) String insertPlan) {
+        return writer("comments", RawDocumentEncoders.COMMENT, insertPlan);
+    }
+
+    /**
+     * Пул асинхронной записи для {@code app.batch.pipeline.max-in-flight > 0}; потоки создаются по требованию.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor mongoWriteExecutor() {
+        var threadPool = new ThreadPoolTaskExecutor();
+        threadPool.setThreadNamePrefix("mongo-write-");
+        threadPool.setCorePoolSize(Math.max(1, props.getPipeline().getWriteThreads()));
+        threadPool.setMaxPoolSize(Math.max(1, props.getPipeline().getWriteThreads()));
+        threadPool.initialize();
+        return threadPool;
+    }
+
+    private <T> PipelinedItemWriter<T> writer(String collection, RawDocumentEncoder<T> encoder, String insertPlan) {
+        boolean raw = props.getWriter() == BatchProperties.Writer.RAW_BSON;
+        var loadModeWriter = new LoadModeItemWriter<>(collection,
+                InitialLoadPlanner.insertAllowed(insertPlan, collection),
+                metrics.timedWriter(collection, "insert",
+                        raw ? rawBulkInsert(collection, encoder) : bulkInsert(collection)),
+                metrics.timedWriter(collection, "upsert",
+                        raw ? rawBulkUpsert(collection, encoder) : bulkUpsert(collection)));
+        return new PipelinedItemWriter<>(loadModeWriter, mongoWriteExecutor(), props.getPipeline().getMaxInFlight());
+    }
+
+    private <T> ItemWriter<T> bulkInsert(String collection) {
+        return chunk -> {
+            if (!chunk.isEmpty()) {
+                operations.bulkOps(BulkOperations.BulkMode.UNORDERED, collection)
+                        .insert(chunk.getItems())
+                        .execute();
+            }
+        };
     }
 
     private <T> ItemWriter<T> bulkUpsert(String collection) {
@@ -70,4 +136,43 @@ public class R2mWritersConfig {
             ops.execute();
         };
     }
+
+    /**
+     * Тот же unordered upsert по {@code _id}, но документы кодируются {@link RawDocumentEncoder} прямо
+     * в BSON и уходят в драйвер как есть: ни конвертера, ни {@code Query} и опций на каждый элемент.
+     */
+    private <T> ItemWriter<T> rawBulkUpsert(String collection, RawDocumentEncoder<T> encoder) {
+        return chunk -> {
+            var items = chunk.getItems();
+            if (items.isEmpty()) {
+                return;
+            }
+
+            List<ReplaceOneModel<RawBsonDocument>> models = new ArrayList<>(items.size());
+            for (T it : items) {
+                var filter = new BsonDocument("_id", new BsonObjectId(encoder.id(it)));
+                models.add(new ReplaceOneModel<>(filter, encoder.encode(it), UPSERT));
+            }
+
+            operations.execute(collection, coll -> coll.withDocumentClass(RawBsonDocument.class)
+                    .bulkWrite(models, UNORDERED));
+        };
+    }
+
+    private <T> ItemWriter<T> rawBulkInsert(String collection, RawDocumentEncoder<T> encoder) {
+        return chunk -> {
+            var items = chunk.getItems();
+            if (items.isEmpty()) {
+                return;
+            }
+
+            List<RawBsonDocument> docs = new ArrayList<>(items.size());
+            for (T it : items) {
+                docs.add(encoder.encode(it));
+            }
+
+            operations.execute(collection, coll -> coll.withDocumentClass(RawBsonDocument.class)
+                    .insertMany(docs, UNORDERED_INSERT));
+        };
+    }
 }
@@ -0,0 +1,64 @@
+package ru.otus.hw.batch.rdbms2mongo.bson;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonWriter;
+import org.bson.RawBsonDocument;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.springframework.util.Assert;
+
+import java.util.function.Function;
+
+/**
+ * Пишет документ одного типа сразу в байты {@link RawBsonDocument}, минуя {@code MongoConverter}:
+ * без рефлексии по метаданным сущности и без промежуточного {@code Document}.
+ * Раскладка полей задаётся вручную и должна совпадать с тем, что пишет конвертер
+ * ({@code _id}, поля, {@code _class}), иначе документы не прочитаются репозиториями.
+ */
+public final class RawDocumentEncoder<T> {
+
+    private static final String TYPE_KEY = "_class";
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private final String typeAlias;
+
+    private final Function<T, ObjectId> idGetter;
+
+    private final FieldWriter<T> fields;
+
+    private RawDocumentEncoder(Class<T> type, Function<T, ObjectId> idGetter, FieldWriter<T> fields) {
+        this.typeAlias = type.getName();
+        this.idGetter = idGetter;
+        this.fields = fields;
+    }
+
+    public static <T> RawDocumentEncoder<T> of(Class<T> type, Function<T, ObjectId> idGetter,
+                                               FieldWriter<T> fields) {
+        return new RawDocumentEncoder<>(type, idGetter, fields);
+    }
+
+    public ObjectId id(T item) {
+        ObjectId id = idGetter.apply(item);
+        Assert.notNull(id, "Mongo document id must not be null");
+        return id;
+    }
+
+    public RawBsonDocument encode(T item) {
+        var buffer = new BasicOutputBuffer(INITIAL_BUFFER_SIZE);
+        try (var writer = new BsonBinaryWriter(buffer)) {
+            writer.writeStartDocument();
+            writer.writeObjectId("_id", id(item));
+            fields.write(writer, item);
+            writer.writeString(TYPE_KEY, typeAlias);
+            writer.writeEndDocument();
+        }
+        // буфер больше не используется, поэтому его массив отдаётся документу без копирования
+        return new RawBsonDocument(buffer.getInternalBuffer(), 0, buffer.getPosition());
+    }
+
+    @FunctionalInterface
+    public interface FieldWriter<T> {
+        void write(BsonWriter writer, T item);
+    }
+}
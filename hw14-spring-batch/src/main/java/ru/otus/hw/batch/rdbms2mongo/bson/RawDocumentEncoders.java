@@ -0,0 +1,76 @@
+package ru.otus.hw.batch.rdbms2mongo.bson;
+
+import org.bson.BsonWriter;
+import org.bson.types.ObjectId;
+import ru.otus.hw.persistence.mongo.model.AuthorDocument;
+import ru.otus.hw.persistence.mongo.model.BookDocument;
+import ru.otus.hw.persistence.mongo.model.CommentDocument;
+import ru.otus.hw.persistence.mongo.model.GenreDocument;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Кодировщики документов миграции, создаются один раз на тип.
+ * Повторяют соглашения {@code MappingMongoConverter} по умолчанию: {@code null}-поля не пишутся,
+ * {@code @DBRef} — это {@code {$ref, $id}}, {@code LocalDateTime} — дата в системной зоне,
+ * {@code @Transient} пропускается.
+ */
+public final class RawDocumentEncoders {
+
+    public static final RawDocumentEncoder<AuthorDocument> AUTHOR = RawDocumentEncoder.of(
+            AuthorDocument.class, AuthorDocument::getId,
+            (writer, author) -> writeString(writer, "fullName", author.getFullName()));
+
+    public static final RawDocumentEncoder<GenreDocument> GENRE = RawDocumentEncoder.of(
+            GenreDocument.class, GenreDocument::getId,
+            (writer, genre) -> writeString(writer, "name", genre.getName()));
+
+    public static final RawDocumentEncoder<BookDocument> BOOK = RawDocumentEncoder.of(
+            BookDocument.class, BookDocument::getId, RawDocumentEncoders::writeBook);
+
+    public static final RawDocumentEncoder<CommentDocument> COMMENT = RawDocumentEncoder.of(
+            CommentDocument.class, CommentDocument::getId, RawDocumentEncoders::writeComment);
+
+    private RawDocumentEncoders() {
+    }
+
+    private static void writeBook(BsonWriter writer, BookDocument book) {
+        writeString(writer, "title", book.getTitle());
+        if (book.getAuthor() != null) {
+            writer.writeName("author");
+            writeDbRef(writer, "authors", book.getAuthor().getId());
+        }
+        if (book.getGenres() != null) {
+            writer.writeStartArray("genres");
+            for (GenreDocument genre : book.getGenres()) {
+                writeDbRef(writer, "genres", genre.getId());
+            }
+            writer.writeEndArray();
+        }
+    }
+
+    private static void writeComment(BsonWriter writer, CommentDocument comment) {
+        writeString(writer, "text", comment.getText());
+        if (comment.getBookId() != null) {
+            writer.writeObjectId("bookId", comment.getBookId());
+        }
+        LocalDateTime createdAt = comment.getCreatedAt();
+        if (createdAt != null) {
+            writer.writeDateTime("createdAt", createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+
+    private static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        }
+    }
+
+    private static void writeDbRef(BsonWriter writer, String collection, ObjectId id) {
+        writer.writeStartDocument();
+        writer.writeString("$ref", collection);
+        writer.writeObjectId("$id", id);
+        writer.writeEndDocument();
+    }
+}
@@ -0,0 +1,7 @@
+package ru.otus.hw.batch.rdbms2mongo.delta;
+
+/**
+ * Строка {@code deleted_rows}: таблица-источник и id удалённой строки.
+ */
+public record DeletedRow(String table, long rowId) {
+}
@@ -0,0 +1,54 @@
+package ru.otus.hw.batch.rdbms2mongo.delta;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import ru.otus.hw.batch.rdbms2mongo.idmap.IdMappingService;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Удаляет из Mongo документы удалённых строк: id ищутся в том же {@link IdMappingService}, что
+ * и при переносе (только чтение, новые маппинги не создаются), затем по одному {@code deleteMany}
+ * на коллекцию. Коллекции называются как таблицы.
+ * Каскадные удаления (комментарии удалённой книги) приходят отдельными строками {@code deleted_rows}.
+ */
+@RequiredArgsConstructor
+public class DeletedRowsWriter implements ItemWriter<DeletedRow> {
+
+    private static final Map<String, String> SOURCE_TYPES = Map.of(
+            "authors", "author",
+            "genres", "genre",
+            "books", "book",
+            "comments", "comment");
+
+    private final MongoOperations mongo;
+
+    private final IdMappingService ids;
+
+    @Override
+    public void write(Chunk<? extends DeletedRow> chunk) {
+        Map<String, Set<String>> byTable = new LinkedHashMap<>();
+        for (DeletedRow row : chunk) {
+            if (SOURCE_TYPES.containsKey(row.table())) {
+                byTable.computeIfAbsent(row.table(), t -> new LinkedHashSet<>()).add(String.valueOf(row.rowId()));
+            }
+        }
+
+        byTable.forEach((table, rowIds) -> {
+            // строка, удалённая до первого переноса, маппинга не имеет — и документа в Mongo тоже
+            Collection<ObjectId> targets = ids.lookup(SOURCE_TYPES.get(table), rowIds).values();
+            if (!targets.isEmpty()) {
+                mongo.remove(Query.query(Criteria.where("_id").in(targets)), table);
+            }
+        });
+    }
+}
@@ -0,0 +1,107 @@
+package ru.otus.hw.batch.rdbms2mongo.delta;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.otus.hw.config.BatchProperties;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Отметки (high-water mark) дельта-миграции по таблицам. Отметка — время БД, до которого изменения
+ * таблицы уже перенесены; хранится в Mongo в коллекции {@code delta_marks} строкой ISO, чтобы
+ * не терять микросекунды и не зависеть от часового пояса.
+ * <p>
+ * Первый шаг джобы фиксирует окно {@code (from, until]} в контексте джобы: рестарт упавшей джобы
+ * дочитывает то же окно. Последний шаг сдвигает отметки на {@code until}, поэтому упавший запуск
+ * отметки не двигает. Полная миграция тоже открывает окно и ставит отметки — первая дельта после
+ * неё начинается с момента старта полной загрузки.
+ * <p>
+ * Тот же шаг чистит {@code deleted_rows} до {@code until - overlap}: следующие окна начинаются не раньше,
+ * так что эти строки больше никто не прочитает, а таблица не растёт без предела.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeltaWindowPlanner {
+
+    public static final List<String> TABLES = List.of("authors", "genres", "books", "comments");
+
+    public static final String DELETED_ROWS = "deleted_rows";
+
+    public static final String FROM_KEY_PREFIX = "delta.from.";
+
+    public static final String UNTIL_KEY = "delta.until";
+
+    static final String COLLECTION = "delta_marks";
+
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final JdbcTemplate jdbc;
+
+    private final MongoOperations mongo;
+
+    private final BatchProperties props;
+
+    /**
+     * Шаг открытия окна. Верхняя граница берётся у БД, а не у приложения, — с ней сравнивается
+     * {@code updated_at}. Без отметки таблица читается целиком. Удаления читаются с самой ранней
+     * нижней границы: повторное удаление документа ничего не меняет.
+     */
+    public RepeatStatus open(StepContribution contribution, ChunkContext chunkContext) {
+        LocalDateTime until = jdbc.queryForObject("select localtimestamp", LocalDateTime.class);
+        var context = jobContext(chunkContext);
+        LocalDateTime deletedFrom = until;
+        for (String table : TABLES) {
+            LocalDateTime from = mark(table)
+                    .map(mark -> mark.minus(props.getDelta().getOverlap()))
+                    .orElse(BEGINNING);
+            context.putString(FROM_KEY_PREFIX + table, from.toString());
+            if (from.isBefore(deletedFrom)) {
+                deletedFrom = from;
+            }
+        }
+        context.putString(FROM_KEY_PREFIX + DELETED_ROWS, deletedFrom.toString());
+        context.putString(UNTIL_KEY, until.toString());
+        log.info("Delta window until {}, deleted rows from {}", until, deletedFrom);
+        return RepeatStatus.FINISHED;
+    }
+
+    /**
+     * Завершающий шаг: все таблицы перенесены по {@code until}, удаления старше нового окна больше не нужны.
+     */
+    public RepeatStatus commit(StepContribution contribution, ChunkContext chunkContext) {
+        String until = jobContext(chunkContext).getString(UNTIL_KEY);
+        TABLES.forEach(table -> mongo.upsert(byTable(table), Update.update("until", until), COLLECTION));
+        LocalDateTime purgeUpTo = LocalDateTime.parse(until).minus(props.getDelta().getOverlap());
+        int purged = jdbc.update("delete from " + DELETED_ROWS + " where deleted_at <= ?", purgeUpTo);
+        log.info("Delta marks moved to {}, purged {} deleted rows up to {}", until, purged, purgeUpTo);
+        return RepeatStatus.FINISHED;
+    }
+
+    private Optional<LocalDateTime> mark(String table) {
+        return Optional.ofNullable(mongo.findOne(byTable(table), Document.class, COLLECTION))
+                .map(doc -> doc.getString("until"))
+                .map(LocalDateTime::parse);
+    }
+
+    private static Query byTable(String table) {
+        return Query.query(Criteria.where("_id").is(table));
+    }
+
+    private static ExecutionContext jobContext(ChunkContext chunkContext) {
+        return chunkContext.getStepContext().getStepExecution().getJobExecution().getExecutionContext();
+    }
+}
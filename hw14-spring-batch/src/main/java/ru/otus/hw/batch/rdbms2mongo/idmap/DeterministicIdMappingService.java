@@ -0,0 +1,58 @@
+package ru.otus.hw.batch.rdbms2mongo.idmap;
+
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import ru.otus.hw.config.BatchProperties;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ObjectId вычисляется из (namespace, sourceType, sourceId), поэтому коллекция {@code id_mappings}
+ * и кэши не нужны, а повторный запуск даёт те же id и upsert остаётся идемпотентным.
+ * Раскладка 12 байт: 4 байта — хеш namespace и типа, 8 байт — числовой sourceId как есть.
+ * Для числовых id это взаимно однозначно, а id одного типа растут вместе с исходными,
+ * так что вставки идут в правый край индекса {@code _id}.
+ * Нечисловой sourceId заменяется первыми 8 байтами его SHA-256.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.batch.id-mapping", name = "mode", havingValue = "deterministic")
+public class DeterministicIdMappingService implements IdMappingService {
+
+    private final String namespace;
+
+    private final Map<String, Integer> typePrefixes = new ConcurrentHashMap<>();
+
+    public DeterministicIdMappingService(BatchProperties props) {
+        this.namespace = props.getIdMapping().getNamespace();
+    }
+
+    @Override
+    public ObjectId resolve(String srcType, String srcId) {
+        int prefix = typePrefixes.computeIfAbsent(srcType, t -> sha256(namespace + ':' + t).getInt());
+        long body = parseOrHash(srcId);
+        return new ObjectId(ByteBuffer.allocate(12).putInt(prefix).putLong(body).array());
+    }
+
+    private static long parseOrHash(String srcId) {
+        try {
+            return Long.parseLong(srcId);
+        } catch (NumberFormatException e) {
+            return sha256(srcId).getLong();
+        }
+    }
+
+    private static ByteBuffer sha256(String value) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ru.otus.hw.batch.rdbms2mongo.idmap;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.annotation.AfterRead;
+import org.springframework.batch.core.annotation.BeforeProcess;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Чанк сначала читается целиком и только потом обрабатывается, поэтому id копятся в {@code afterRead},
+ * а перед обработкой первого элемента разрешаются одним пакетом через {@link IdMappingService#prefetch}.
+ * Процессоры после этого берут id из кэша и в Mongo не ходят.
+ * Состояние держится в ThreadLocal: один экземпляр слушателя делят воркеры партиций.
+ */
+@RequiredArgsConstructor
+public class IdPrefetchListener<T> {
+
+    private final IdMappingService ids;
+
+    private final BiConsumer<T, SourceIds> collector;
+
+    private final ThreadLocal<SourceIds> pending = ThreadLocal.withInitial(SourceIds::new);
+
+    @AfterRead
+    public void afterRead(T item) {
+        collector.accept(item, pending.get());
+    }
+
+    @BeforeProcess
+    public void beforeProcess(T item) {
+        SourceIds batch = pending.get();
+        if (!batch.isEmpty()) {
+            try {
+                ids.prefetch(batch);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+}
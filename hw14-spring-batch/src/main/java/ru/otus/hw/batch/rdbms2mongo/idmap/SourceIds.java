@@ -0,0 +1,30 @@
+package ru.otus.hw.batch.rdbms2mongo.idmap;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Исходные id, собранные с прочитанных элементов чанка, сгруппированные по sourceType.
+ */
+public final class SourceIds {
+
+    private final Map<String, Set<String>> byType = new HashMap<>();
+
+    public void add(String srcType, Object srcId) {
+        byType.computeIfAbsent(srcType, t -> new HashSet<>()).add(String.valueOf(srcId));
+    }
+
+    public Map<String, Set<String>> byType() {
+        return byType;
+    }
+
+    public boolean isEmpty() {
+        return byType.isEmpty();
+    }
+
+    public void clear() {
+        byType.clear();
+    }
+}
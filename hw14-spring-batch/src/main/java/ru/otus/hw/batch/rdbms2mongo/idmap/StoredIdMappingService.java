@@ -0,0 +1,182 @@
+package ru.otus.hw.batch.rdbms2mongo.idmap;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.jspecify.annotations.NonNull;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import ru.otus.hw.batch.rdbms2mongo.metrics.MigrationMetrics;
+import ru.otus.hw.config.BatchProperties;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Маппинги хранятся в коллекции {@code id_mappings} и кэшируются по типам в Caffeine;
+ * попадания в кэш публикуются через {@link MigrationMetrics}.
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.batch.id-mapping", name = "mode", havingValue = "stored", matchIfMissing = true)
+public class StoredIdMappingService implements IdMappingService {
+
+    private static final String COLLECTION = "id_mappings";
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final IdMappingRepository repository;
+
+    private final MongoOperations operations;
+
+    private final BatchProperties batchProperties;
+
+    private final MigrationMetrics metrics;
+
+    private final Map<String, Cache<@NonNull String, ObjectId>> caches = new ConcurrentHashMap<>();
+
+    @Override
+    public ObjectId resolve(String srcType, String srcId) {
+        long cap = sizeFor(srcType);
+        if (cap <= 0) {
+            return upsertAndReturnTargetId(srcType, srcId);
+        }
+
+        return cacheFor(srcType).get(srcId, key -> upsertAndReturnTargetId(srcType, key));
+    }
+
+    /**
+     * Пакетное разрешение для чанка: одна выборка {@code $in} по уже существующим маппингам,
+     * один unordered bulk upsert для недостающих и повторная выборка — результат ложится в кэш.
+     * Без кэша (размер 0) прогревать некуда, поэтому метод ничего не делает.
+     */
+    @Override
+    public void prefetch(SourceIds ids) {
+        ids.byType().forEach(this::prefetch);
+    }
+
+    public void prefetch(String srcType, Collection<String> srcIds) {
+        if (sizeFor(srcType) <= 0) {
+            return;
+        }
+        var cache = cacheFor(srcType);
+        List<String> missing = srcIds.stream()
+                .filter(id -> cache.getIfPresent(id) == null)
+                .toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        List<String> absent = loadInto(cache, srcType, missing);
+        if (absent.isEmpty()) {
+            return;
+        }
+        bulkUpsert(srcType, absent);
+        loadInto(cache, srcType, absent);
+    }
+
+    /**
+     * Кэш, затем одна выборка {@code $in} по остальным; недостающие маппинги не создаются.
+     */
+    @Override
+    public Map<String, ObjectId> lookup(String srcType, Collection<String> srcIds) {
+        Map<String, ObjectId> found = new LinkedHashMap<>();
+        var cache = sizeFor(srcType) > 0 ? cacheFor(srcType) : null;
+        List<String> missing = new ArrayList<>();
+        for (String srcId : srcIds) {
+            ObjectId cached = cache == null ? null : cache.getIfPresent(srcId);
+            if (cached != null) {
+                found.put(srcId, cached);
+            } else {
+                missing.add(srcId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            findMappings(srcType, missing).forEach(mapping -> found.put(mapping.getSourceId(), mapping.getTargetId()));
+        }
+        return found;
+    }
+
+    private List<String> loadInto(Cache<@NonNull String, ObjectId> cache, String srcType, List<String> srcIds) {
+        Set<String> found = new HashSet<>(srcIds.size());
+        for (var mapping : findMappings(srcType, srcIds)) {
+            cache.put(mapping.getSourceId(), mapping.getTargetId());
+            found.add(mapping.getSourceId());
+        }
+        return srcIds.stream().filter(id -> !found.contains(id)).toList();
+    }
+
+    private List<IdMappingDocument> findMappings(String srcType, Collection<String> srcIds) {
+        var query = Query.query(Criteria.where("sourceType").is(srcType).and("sourceId").in(srcIds));
+        query.fields().include("sourceId", "targetId");
+        return operations.find(query, IdMappingDocument.class, COLLECTION);
+    }
+
+    private void bulkUpsert(String srcType, List<String> srcIds) {
+        var ops = operations.bulkOps(BulkOperations.BulkMode.UNORDERED, IdMappingDocument.class, COLLECTION);
+        for (String srcId : srcIds) {
+            ops.upsert(byKey(srcType, srcId), insertOnly(srcType, srcId));
+        }
+        try {
+            ops.execute();
+        } catch (BulkOperationException e) {
+            // тот же ключ параллельно вставила другая партиция: её targetId дочитается следующей выборкой
+            boolean onlyDuplicates = e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY);
+            if (!onlyDuplicates) {
+                throw e;
+            }
+        }
+    }
+
+    private ObjectId upsertAndReturnTargetId(String srcType, String srcId) {
+        var opts = FindAndModifyOptions.options().returnNew(true).upsert(true);
+
+        var saved = Objects.requireNonNull(
+                operations.findAndModify(byKey(srcType, srcId), insertOnly(srcType, srcId), opts,
+                        IdMappingDocument.class, COLLECTION),
+                "id_mappings upsert must return a document"
+        );
+
+        return saved.getTargetId();
+    }
+
+    private static Query byKey(String srcType, String srcId) {
+        return Query.query(Criteria.where("sourceType").is(srcType).and("sourceId").is(srcId));
+    }
+
+    private static Update insertOnly(String srcType, String srcId) {
+        return new Update()
+                .setOnInsert("sourceType", srcType)
+                .setOnInsert("sourceId", srcId)
+                .setOnInsert("targetId", new ObjectId());
+    }
+
+    private Cache<@NonNull String, ObjectId> cacheFor(String type) {
+        return caches.computeIfAbsent(type, t -> metrics.monitorIdCache(t,
+                Caffeine.newBuilder()
+                        .maximumSize(sizeFor(t))
+                        .recordStats()
+                        .build()
+        ));
+    }
+
+    private long sizeFor(String type) {
+        return batchProperties.getIdMappingCache().getPerType()
+                .getOrDefault(type, batchProperties.getIdMappingCache().getMaximumSize());
+    }
+}
@@ -0,0 +1,40 @@
+package ru.otus.hw.batch.rdbms2mongo.listener;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import ru.otus.hw.batch.rdbms2mongo.IdRangePartitioner;
+
+@Slf4j
+@RequiredArgsConstructor
+public class PartitionInfoListener implements StepExecutionListener {
+
+    private final String entity;
+
+    @Override
+    public void beforeStep(StepExecution step) {
+        var ctx = step.getExecutionContext();
+        log.info("[{}] PARTITION START step={} ids=[{}..{}] chunk={}",
+                entity,
+                step.getStepName(),
+                ctx.getLong(IdRangePartitioner.MIN_ID_KEY, -1),
+                ctx.getLong(IdRangePartitioner.MAX_ID_KEY, -1),
+                ctx.getInt(IdRangePartitioner.CHUNK_SIZE_KEY, -1));
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution step) {
+        var ctx = step.getExecutionContext();
+        log.info("[{}] PARTITION END   step={} ids=[{}..{}]  read={} written={} commits={}",
+                entity,
+                step.getStepName(),
+                ctx.getLong(IdRangePartitioner.MIN_ID_KEY, -1),
+                ctx.getLong(IdRangePartitioner.MAX_ID_KEY, -1),
+                step.getReadCount(),
+                step.getWriteCount(),
+                step.getCommitCount());
+        return step.getExitStatus();
+    }
+}
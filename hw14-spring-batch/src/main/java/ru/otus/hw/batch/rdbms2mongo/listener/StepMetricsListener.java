@@ -0,0 +1,193 @@
+package ru.otus.hw.batch.rdbms2mongo.listener;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.annotation.AfterChunk;
+import org.springframework.batch.core.annotation.AfterChunkError;
+import org.springframework.batch.core.annotation.AfterProcess;
+import org.springframework.batch.core.annotation.AfterRead;
+import org.springframework.batch.core.annotation.AfterStep;
+import org.springframework.batch.core.annotation.AfterWrite;
+import org.springframework.batch.core.annotation.BeforeChunk;
+import org.springframework.batch.core.annotation.BeforeProcess;
+import org.springframework.batch.core.annotation.BeforeRead;
+import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.annotation.BeforeWrite;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
+import ru.otus.hw.batch.rdbms2mongo.metrics.MigrationMetrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Метрики шага в Micrometer с тегом {@code step}: время чанка (гистограмма), время чтения, обработки
+ * и записи внутри чанка, счётчик записанных элементов и текущая скорость (элементов в секунду).
+ * Время фаз копится по элементам и пишется в таймеры один раз на чанк. Обработка включает
+ * разрешение id; запись при конвейерной записи — только передачу чанка в пул, время самой записи
+ * в Mongo — в {@link MigrationMetrics#MONGO_WRITE}.
+ * <p>
+ * Один экземпляр делят воркеры партиций, поэтому замеры чанка держатся в ThreadLocal, а скорость
+ * считается от старта первой партиции текущего запуска джобы.
+ */
+public class StepMetricsListener {
+
+    private final Timer chunkTimer;
+
+    private final Timer readTimer;
+
+    private final Timer processTimer;
+
+    private final Timer writeTimer;
+
+    private final Counter items;
+
+    private final ThreadLocal<ChunkClock> clock = ThreadLocal.withInitial(ChunkClock::new);
+
+    private final AtomicLong written = new AtomicLong();
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private volatile long jobExecutionId = -1;
+
+    private volatile long startNanos;
+
+    private volatile long endNanos;
+
+    public StepMetricsListener(MeterRegistry registry, String step) {
+        this.chunkTimer = Timer.builder(MigrationMetrics.CHUNK)
+                .tag("step", step)
+                .publishPercentiles(MigrationMetrics.PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry);
+        this.readTimer = phaseTimer(registry, step, "read");
+        this.processTimer = phaseTimer(registry, step, "process");
+        this.writeTimer = phaseTimer(registry, step, "write");
+        this.items = Counter.builder(MigrationMetrics.ITEMS)
+                .tag("step", step)
+                .register(registry);
+        Gauge.builder(MigrationMetrics.THROUGHPUT, this, StepMetricsListener::itemsPerSecond)
+                .tag("step", step)
+                .baseUnit("items/s")
+                .register(registry);
+    }
+
+    @BeforeStep
+    public void beforeStep(StepExecution stepExecution) {
+        synchronized (this) {
+            if (stepExecution.getJobExecutionId() != jobExecutionId) {
+                jobExecutionId = stepExecution.getJobExecutionId();
+                written.set(0);
+                startNanos = System.nanoTime();
+            }
+            running.incrementAndGet();
+            endNanos = 0;
+        }
+    }
+
+    @AfterStep
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        synchronized (this) {
+            if (running.decrementAndGet() == 0) {
+                endNanos = System.nanoTime();
+            }
+        }
+        return null;
+    }
+
+    @BeforeChunk
+    public void beforeChunk(ChunkContext context) {
+        clock.get().reset();
+    }
+
+    @AfterChunk
+    public void afterChunk(ChunkContext context) {
+        ChunkClock c = clock.get();
+        chunkTimer.record(System.nanoTime() - c.chunkStart, TimeUnit.NANOSECONDS);
+        readTimer.record(c.read, TimeUnit.NANOSECONDS);
+        processTimer.record(c.process, TimeUnit.NANOSECONDS);
+        writeTimer.record(c.write, TimeUnit.NANOSECONDS);
+    }
+
+    @AfterChunkError
+    public void afterChunkError(ChunkContext context) {
+        clock.get().reset();
+    }
+
+    @BeforeRead
+    public void beforeRead() {
+        clock.get().phaseStart = System.nanoTime();
+    }
+
+    @AfterRead
+    public void afterRead(Object item) {
+        ChunkClock c = clock.get();
+        c.read += System.nanoTime() - c.phaseStart;
+    }
+
+    @BeforeProcess
+    public void beforeProcess(Object item) {
+        clock.get().phaseStart = System.nanoTime();
+    }
+
+    @AfterProcess
+    public void afterProcess(Object item, Object result) {
+        ChunkClock c = clock.get();
+        c.process += System.nanoTime() - c.phaseStart;
+    }
+
+    @BeforeWrite
+    public void beforeWrite(Chunk<?> chunk) {
+        clock.get().phaseStart = System.nanoTime();
+    }
+
+    @AfterWrite
+    public void afterWrite(Chunk<?> chunk) {
+        ChunkClock c = clock.get();
+        c.write += System.nanoTime() - c.phaseStart;
+        items.increment(chunk.size());
+        written.addAndGet(chunk.size());
+    }
+
+    private double itemsPerSecond() {
+        long start = startNanos;
+        if (start == 0) {
+            return 0;
+        }
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        double seconds = (end - start) / 1e9;
+        return seconds <= 0 ? 0 : written.get() / seconds;
+    }
+
+    private static Timer phaseTimer(MeterRegistry registry, String step, String phase) {
+        return Timer.builder(MigrationMetrics.PHASE)
+                .tag("step", step)
+                .tag("phase", phase)
+                .register(registry);
+    }
+
+    private static final class ChunkClock {
+
+        private long chunkStart;
+
+        private long phaseStart;
+
+        private long read;
+
+        private long process;
+
+        private long write;
+
+        private void reset() {
+            chunkStart = System.nanoTime();
+            read = 0;
+            process = 0;
+            write = 0;
+        }
+    }
+}
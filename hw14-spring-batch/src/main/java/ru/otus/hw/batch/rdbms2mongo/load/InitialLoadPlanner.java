@@ -0,0 +1,74 @@
+package ru.otus.hw.batch.rdbms2mongo.load;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import ru.otus.hw.config.BatchProperties;
+import ru.otus.hw.db.mongo.SecondaryIndexes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Решает, в какие коллекции загрузка идёт вставкой, а не upsert'ом ({@code app.batch.load-mode}),
+ * и обслуживает вторичные индексы вокруг загрузки. Решение принимается один раз на экземпляр джобы
+ * первым шагом и кладётся в контекст джобы: на рестарте шаг не повторяется и решение не меняется,
+ * а отдельные шаги сами переходят на upsert (см. {@link LoadModeItemWriter}).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InitialLoadPlanner {
+
+    public static final String INSERT_COLLECTIONS_KEY = "r2m.insertCollections";
+
+    private static final List<String> COLLECTIONS = List.of("authors", "genres", "books", "comments");
+
+    private final MongoOperations mongo;
+
+    private final BatchProperties props;
+
+    public static boolean insertAllowed(String plan, String collection) {
+        return plan != null && Arrays.asList(plan.split(",")).contains(collection);
+    }
+
+    /**
+     * Шаг подготовки: выбирает коллекции для вставки и снимает с них неуникальные вторичные индексы.
+     */
+    public RepeatStatus prepare(StepContribution contribution, ChunkContext chunkContext) {
+        List<String> insert = new ArrayList<>();
+        for (String collection : COLLECTIONS) {
+            if (insertInto(collection)) {
+                SecondaryIndexes.dropDeferrable(mongo, collection);
+                insert.add(collection);
+            }
+        }
+        log.info("Load mode {}: insert into {}, upsert into the rest", props.getLoadMode(), insert);
+        chunkContext.getStepContext().getStepExecution().getJobExecution().getExecutionContext()
+                .putString(INSERT_COLLECTIONS_KEY, String.join(",", insert));
+        return RepeatStatus.FINISHED;
+    }
+
+    /**
+     * Завершающий шаг: строит вторичные индексы всех коллекций. Идемпотентен, поэтому выполняется
+     * и после upsert-загрузки, и на рестарте, если прошлый запуск упал до построения индексов.
+     */
+    public RepeatStatus finish(StepContribution contribution, ChunkContext chunkContext) {
+        COLLECTIONS.forEach(collection -> SecondaryIndexes.ensure(mongo, collection));
+        return RepeatStatus.FINISHED;
+    }
+
+    private boolean insertInto(String collection) {
+        return switch (props.getLoadMode()) {
+            case UPSERT -> false;
+            case INSERT -> true;
+            case AUTO -> !mongo.exists(new Query(), collection);
+        };
+    }
+}
@@ -0,0 +1,80 @@
+package ru.otus.hw.batch.rdbms2mongo.load;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+
+/**
+ * Писатель шага, который пишет вставкой, пока это безопасно, и upsert'ом во всех остальных случаях.
+ * <ul>
+ *     <li>вставка разрешена планом {@link InitialLoadPlanner} для коллекции;</li>
+ *     <li>шаг запущен впервые: отметка в контексте шага сохраняется сразу после {@link #open}, так что
+ *     рестарт шага (или партиции) видит её и пишет upsert'ом поверх уже вставленного;</li>
+ *     <li>если вставка всё же упёрлась в дубликат {@code _id}, чанк переписывается upsert'ом,
+ *     и до конца шага вставка больше не используется.</li>
+ * </ul>
+ */
+@Slf4j
+public class LoadModeItemWriter<T> implements ItemStreamWriter<T> {
+
+    static final String MODE_KEY = "loadMode";
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final String collection;
+
+    private final boolean insertAllowed;
+
+    private final ItemWriter<T> inserter;
+
+    private final ItemWriter<T> upserter;
+
+    private volatile boolean insert;
+
+    public LoadModeItemWriter(String collection, boolean insertAllowed,
+                              ItemWriter<T> inserter, ItemWriter<T> upserter) {
+        this.collection = collection;
+        this.insertAllowed = insertAllowed;
+        this.inserter = inserter;
+        this.upserter = upserter;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        boolean restart = executionContext.containsKey(MODE_KEY);
+        insert = insertAllowed && !restart;
+        if (insertAllowed && restart) {
+            log.info("Restarted step writes {} with upsert", collection);
+        }
+        executionContext.putString(MODE_KEY, insert ? "insert" : "upsert");
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        if (!insert) {
+            upserter.write(chunk);
+            return;
+        }
+        try {
+            inserter.write(chunk);
+        } catch (DuplicateKeyException | BulkOperationException e) {
+            if (!isDuplicateKeyOnly(e)) {
+                throw e;
+            }
+            log.warn("Duplicate keys while inserting into {}, switching to upsert", collection);
+            insert = false;
+            upserter.write(chunk);
+        }
+    }
+
+    private static boolean isDuplicateKeyOnly(RuntimeException e) {
+        if (e instanceof BulkOperationException bulk) {
+            return bulk.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY);
+        }
+        return true;
+    }
+}
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.otus.hw.persistence.rdbms.model.Author;
 import ru.otus.hw.batch.rdbms2mongo.idmap.IdMappingService;
+import ru.otus.hw.batch.rdbms2mongo.idmap.SourceIds;
 import ru.otus.hw.persistence.mongo.model.AuthorDocument;
 
 @Service
@@ -15,4 +16,8 @@ public class AuthorMapper {
         var oid = ids.resolve("author", String.valueOf(a.getId()));
         return new AuthorDocument(oid, a.getFullName());
     }
+
+    public void collectIds(Author a, SourceIds refs) {
+        refs.add("author", a.getId());
+    }
 }
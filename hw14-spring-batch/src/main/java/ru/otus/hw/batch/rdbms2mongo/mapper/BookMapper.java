@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.otus.hw.persistence.rdbms.model.Book;
 import ru.otus.hw.batch.rdbms2mongo.idmap.IdMappingService;
+import ru.otus.hw.batch.rdbms2mongo.idmap.SourceIds;
 import ru.otus.hw.persistence.mongo.model.AuthorDocument;
 import ru.otus.hw.persistence.mongo.model.BookDocument;
 import ru.otus.hw.persistence.mongo.model.GenreDocument;
@@ -29,5 +30,10 @@ public class BookMapper {
 
         return new BookDocument(bid, b.getTitle(), author, new ArrayList<>(genres));
     }
-}
 
+    public void collectIds(Book b, SourceIds refs) {
+        refs.add("book", b.getId());
+        refs.add("author", b.getAuthor().getId());
+        b.getGenres().forEach(g -> refs.add("genre", g.getId()));
+    }
+}
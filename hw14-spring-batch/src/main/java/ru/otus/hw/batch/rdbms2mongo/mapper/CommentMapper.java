@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.otus.hw.persistence.rdbms.model.Comment;
 import ru.otus.hw.batch.rdbms2mongo.idmap.IdMappingService;
+import ru.otus.hw.batch.rdbms2mongo.idmap.SourceIds;
 import ru.otus.hw.persistence.mongo.model.CommentDocument;
 
 @Service
@@ -16,4 +17,9 @@ public class CommentMapper {
         var bookOid = ids.resolve("book", String.valueOf(c.getBook().getId()));
         return new CommentDocument(cid, c.getText(), bookOid, c.getCreatedAt(), null);
     }
+
+    public void collectIds(Comment c, SourceIds refs) {
+        refs.add("comment", c.getId());
+        refs.add("book", c.getBook().getId());
+    }
 }
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.otus.hw.persistence.rdbms.model.Genre;
 import ru.otus.hw.batch.rdbms2mongo.idmap.IdMappingService;
+import ru.otus.hw.batch.rdbms2mongo.idmap.SourceIds;
 import ru.otus.hw.persistence.mongo.model.GenreDocument;
 
 @Service
@@ -15,4 +16,8 @@ public class GenreMapper {
         var oid = ids.resolve("genre", String.valueOf(g.getId()));
         return new GenreDocument(oid, g.getName());
     }
+
+    public void collectIds(Genre g, SourceIds refs) {
+        refs.add("genre", g.getId());
+    }
 }
@@ -0,0 +1,155 @@
+package ru.otus.hw.batch.rdbms2mongo.metrics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.stereotype.Component;
+import ru.otus.hw.batch.rdbms2mongo.listener.StepMetricsListener;
+
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики миграции в Micrometer: имена метров, фабрики слушателей шагов и обёрток писателей,
+ * регистрация кэшей id-маппинга и текстовый отчёт для shell-команды. Всё видно и через
+ * {@code /actuator/metrics}.
+ */
+@Component
+@RequiredArgsConstructor
+public class MigrationMetrics {
+
+    public static final String CHUNK = "r2m.chunk";
+
+    public static final String PHASE = "r2m.chunk.phase";
+
+    public static final String ITEMS = "r2m.items";
+
+    public static final String THROUGHPUT = "r2m.throughput";
+
+    public static final String MONGO_WRITE = "r2m.mongo.write";
+
+    public static final String ID_CACHE = "id_mappings";
+
+    public static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private static final String CACHE_GETS = "cache.gets";
+
+    private final MeterRegistry registry;
+
+    private final Map<String, StepMetricsListener> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * Слушатель на имя шага: шаг может попасть в несколько джоб, а метры регистрируются один раз.
+     */
+    public StepMetricsListener stepListener(String step) {
+        return listeners.computeIfAbsent(step, name -> new StepMetricsListener(registry, name));
+    }
+
+    /**
+     * Время одной пакетной операции в Mongo по коллекции и виду операции.
+     */
+    public <T> ItemWriter<T> timedWriter(String collection, String operation, ItemWriter<T> delegate) {
+        Timer timer = Timer.builder(MONGO_WRITE)
+                .tag("collection", collection)
+                .tag("operation", operation)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry);
+        return chunk -> {
+            long start = System.nanoTime();
+            try {
+                delegate.write(chunk);
+            } finally {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    /**
+     * Публикует попадания и промахи кэша как {@code cache.gets{cache=id_mappings,type=...}};
+     * кэш должен собирать статистику ({@code recordStats()}).
+     */
+    public <V> Cache<String, V> monitorIdCache(String srcType, Cache<String, V> cache) {
+        CaffeineCacheMetrics.monitor(registry, cache, ID_CACHE, "type", srcType);
+        return cache;
+    }
+
+    public String report() {
+        var out = new StringBuilder();
+        out.append("Steps (chunk ms: mean / p95 / max; time split read / process / write):\n");
+        registry.find(CHUNK).timers().stream()
+                .filter(timer -> timer.count() > 0)
+                .sorted(Comparator.comparing(timer -> timer.getId().getTag("step")))
+                .forEach(timer -> appendStep(out, timer));
+
+        out.append("Mongo writes (ms: mean / p95 / max):\n");
+        registry.find(MONGO_WRITE).timers().stream()
+                .filter(timer -> timer.count() > 0)
+                .sorted(Comparator.comparing(timer -> timer.getId().getTag("collection")
+                        + timer.getId().getTag("operation")))
+                .forEach(timer -> out.append(String.format(Locale.ROOT, "  %-10s %-7s calls=%d %s%n",
+                        timer.getId().getTag("collection"), timer.getId().getTag("operation"),
+                        timer.count(), latency(timer.takeSnapshot()))));
+
+        out.append("Id mapping cache:\n");
+        Map<String, double[]> hitsAndMisses = new TreeMap<>();
+        for (FunctionCounter counter : registry.find(CACHE_GETS).tag("cache", ID_CACHE).functionCounters()) {
+            double[] counts = hitsAndMisses.computeIfAbsent(counter.getId().getTag("type"), t -> new double[2]);
+            counts["hit".equals(counter.getId().getTag("result")) ? 0 : 1] += counter.count();
+        }
+        hitsAndMisses.forEach((type, counts) -> {
+            double total = counts[0] + counts[1];
+            out.append(String.format(Locale.ROOT, "  %-10s hit ratio=%.1f%% (hits=%.0f, misses=%.0f)%n",
+                    type, total == 0 ? 0 : counts[0] * 100 / total, counts[0], counts[1]));
+        });
+        return out.toString();
+    }
+
+    private void appendStep(StringBuilder out, Timer chunk) {
+        String step = chunk.getId().getTag("step");
+        double read = phaseMillis(step, "read");
+        double process = phaseMillis(step, "process");
+        double write = phaseMillis(step, "write");
+        double total = read + process + write;
+        Gauge throughput = registry.find(THROUGHPUT).tag("step", step).gauge();
+        out.append(String.format(Locale.ROOT, "  %-20s items=%.0f rate=%.0f/s chunks=%d %s split=%s / %s / %s%n",
+                step,
+                Objects.requireNonNull(registry.find(ITEMS).tag("step", step).counter()).count(),
+                throughput == null ? 0 : throughput.value(),
+                chunk.count(),
+                latency(chunk.takeSnapshot()),
+                share(read, total), share(process, total), share(write, total)));
+    }
+
+    private double phaseMillis(String step, String phase) {
+        Timer timer = registry.find(PHASE).tag("step", step).tag("phase", phase).timer();
+        return timer == null ? 0 : timer.totalTime(TimeUnit.MILLISECONDS);
+    }
+
+    private static String latency(HistogramSnapshot snapshot) {
+        double p95 = 0;
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            if (value.percentile() == 0.95) {
+                p95 = value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return String.format(Locale.ROOT, "%.1f / %.1f / %.1f ms",
+                snapshot.mean(TimeUnit.MILLISECONDS), p95, snapshot.max(TimeUnit.MILLISECONDS));
+    }
+
+    private static String share(double part, double total) {
+        return total == 0 ? "-" : String.format(Locale.ROOT, "%.0f%%", part * 100 / total);
+    }
+}
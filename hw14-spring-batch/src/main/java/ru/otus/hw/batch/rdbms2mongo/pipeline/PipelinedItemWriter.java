@@ -0,0 +1,211 @@
+package ru.otus.hw.batch.rdbms2mongo.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Писатель шага, который отдаёт запись чанка в отдельный пул и сразу возвращает управление,
+ * так что чтение и обработка следующего чанка идут параллельно с записью в Mongo.
+ * При {@code maxInFlight = 0} пишет синхронно и просто делегирует.
+ * <p>
+ * Семантика рестарта: после {@code write} шаг сразу коммитит состояние читателя, хотя чанк ещё
+ * пишется. Поэтому в {@link #update} состояние, только что записанное читателем, откладывается
+ * до завершения записи своего чанка, а в контекст шага кладётся последний снимок, у которого
+ * завершены запись его чанка и всех предыдущих. Потоки шага регистрируются в порядке
+ * «читатель, писатель», так что {@code update} писателя вызывается после читателя.
+ * Рестарт перечитывает незавершённые чанки и пишет их повторно — это безопасно, потому что
+ * писатели ключуются по {@code _id}, а перезапущенный шаг пишет upsert'ом.
+ * Перед завершением шага ({@link #afterStep}) дожидаются все отправленные записи; ошибка
+ * любой из них переводит шаг в FAILED.
+ */
+@Slf4j
+public class PipelinedItemWriter<T> implements ItemStreamWriter<T>, StepExecutionListener {
+
+    /**
+     * Служебные ключи Spring Batch не относятся к позиции чтения и не откатываются.
+     */
+    private static final String INTERNAL_KEY_PREFIX = "batch.";
+
+    private static final CompletableFuture<Void> NOTHING_WRITTEN = CompletableFuture.completedFuture(null);
+
+    private final ItemWriter<T> delegate;
+
+    private final Executor executor;
+
+    private final int maxInFlight;
+
+    private final Deque<Checkpoint> pending = new ArrayDeque<>();
+
+    private CompletableFuture<Void> lastWrite;
+
+    private Map<String, Object> durable = Map.of();
+
+    public PipelinedItemWriter(ItemWriter<T> delegate, Executor executor, int maxInFlight) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxInFlight = Math.max(0, maxInFlight);
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        if (delegate instanceof ItemStream stream) {
+            stream.open(executionContext);
+        }
+        pending.clear();
+        lastWrite = null;
+        durable = snapshot(executionContext);
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        if (maxInFlight == 0) {
+            delegate.write(chunk);
+            return;
+        }
+        advance();
+        while (pending.size() >= maxInFlight) {
+            await(pending.peekFirst().write());
+            advance();
+        }
+        var copy = new Chunk<T>(new ArrayList<>(chunk.getItems()));
+        lastWrite = CompletableFuture.runAsync(() -> writeDelegate(copy), executor);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        if (delegate instanceof ItemStream stream) {
+            stream.update(executionContext);
+        }
+        if (maxInFlight == 0) {
+            return;
+        }
+        var write = lastWrite == null ? NOTHING_WRITTEN : lastWrite;
+        pending.addLast(new Checkpoint(snapshot(executionContext), write));
+        lastWrite = null;
+        try {
+            advance();
+        } finally {
+            restore(executionContext, durable);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (delegate instanceof ItemStream stream) {
+            stream.close();
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        if (maxInFlight == 0) {
+            return null;
+        }
+        var context = stepExecution.getExecutionContext();
+        try {
+            while (!pending.isEmpty()) {
+                await(pending.peekFirst().write());
+                advance();
+            }
+            if (lastWrite != null) {
+                // write без последующего update: чанк упал до коммита, его состояние не сохранялось
+                await(lastWrite);
+            }
+            return null;
+        } catch (Exception e) {
+            if (stepExecution.getStatus() == BatchStatus.COMPLETED) {
+                log.error("Pipelined write failed after the last chunk of {}", stepExecution.getStepName(), e);
+                stepExecution.setStatus(BatchStatus.FAILED);
+                stepExecution.addFailureException(e);
+                return ExitStatus.FAILED.addExitDescription(e);
+            }
+            return null;
+        } finally {
+            pending.forEach(checkpoint -> awaitQuietly(checkpoint.write()));
+            pending.clear();
+            if (lastWrite != null) {
+                awaitQuietly(lastWrite);
+                lastWrite = null;
+            }
+            restore(context, durable);
+        }
+    }
+
+    /**
+     * Сдвигает сохраняемое состояние на последний чанк из непрерывно завершённого префикса очереди.
+     */
+    private void advance() {
+        while (!pending.isEmpty() && pending.peekFirst().write().isDone()) {
+            Checkpoint head = pending.peekFirst();
+            await(head.write());
+            durable = head.state();
+            pending.removeFirst();
+        }
+    }
+
+    private void writeDelegate(Chunk<T> chunk) {
+        try {
+            delegate.write(chunk);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static void await(CompletableFuture<Void> write) {
+        try {
+            write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a pipelined write", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Pipelined write failed", e.getCause());
+        }
+    }
+
+    private static void awaitQuietly(CompletableFuture<Void> write) {
+        write.exceptionally(e -> null).join();
+    }
+
+    private static Map<String, Object> snapshot(ExecutionContext context) {
+        Map<String, Object> state = new HashMap<>();
+        for (Map.Entry<String, Object> entry : context.entrySet()) {
+            if (!entry.getKey().startsWith(INTERNAL_KEY_PREFIX)) {
+                state.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return state;
+    }
+
+    private static void restore(ExecutionContext context, Map<String, Object> state) {
+        context.entrySet().stream()
+                .map(Map.Entry::getKey)
+                .filter(key -> !key.startsWith(INTERNAL_KEY_PREFIX) && !state.containsKey(key))
+                .toList()
+                .forEach(context::remove);
+        state.forEach(context::put);
+    }
+
+    private record Checkpoint(Map<String, Object> state, CompletableFuture<Void> write) {
+    }
+}
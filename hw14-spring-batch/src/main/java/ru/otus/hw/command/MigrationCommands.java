@@ -6,6 +6,7 @@ import org.springframework.batch.core.launch.JobOperator;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
+import ru.otus.hw.batch.rdbms2mongo.metrics.MigrationMetrics;
 import ru.otus.hw.util.MongoMigrationUtils;
 
 import java.util.List;
@@ -21,6 +22,8 @@ public class MigrationCommands {
 
     private final MongoTemplate mongo;
 
+    private final MigrationMetrics metrics;
+
     @ShellMethod(key = {"migrate-r2m", "r2m"}, value = "Run migration RDBMS -> Mongo")
     public String start() throws Exception {
         var props = new Properties();
@@ -29,6 +32,14 @@ public class MigrationCommands {
         return "Started executionId=" + execId;
     }
 
+    @ShellMethod(key = {"migrate-delta", "delta"}, value = "Migrate rows changed since the last run RDBMS -> Mongo")
+    public String startDelta() throws Exception {
+        var props = new Properties();
+        props.setProperty("startedAt", Long.toString(System.currentTimeMillis()));
+        long execId = jobOperator.start("rdbmsToMongoDeltaJob", props);
+        return "Started delta executionId=" + execId;
+    }
+
     @ShellMethod(key = {"restart", "rs", "r"}, value = "Restart migration execution")
     public String restart() throws Exception {
         var props = new Properties();
@@ -52,9 +63,14 @@ public class MigrationCommands {
         return "Restarted executionId=" + newId;
     }
 
+    @ShellMethod(key = {"migration-metrics", "metrics"}, value = "Show step throughput, latencies, cache hits")
+    public String migrationMetrics() {
+        return metrics.report();
+    }
+
     @ShellMethod(key = {"mongo-clean", "mclean", "mc"}, value = "Drop Mongo collections")
     public String mongoClean() {
-        var targetCollections = List.of("authors", "genres", "books", "comments", "id_mappings");
+        var targetCollections = List.of("authors", "genres", "books", "comments", "id_mappings", "delta_marks");
 
         int dropped = 0;
         int skipped = 0;
@@ -4,6 +4,7 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -12,6 +13,14 @@ import java.util.Map;
 @ConfigurationProperties(prefix = "app.batch")
 public class BatchProperties {
 
+    private Reader reader = Reader.JPA;
+
+    private Writer writer = Writer.CONVERTER;
+
+    private LoadMode loadMode = LoadMode.UPSERT;
+
+    private IdMapping idMapping = new IdMapping();
+
     private IdMappingCache idMappingCache = new IdMappingCache();
 
     private ThreadPool threadPool = new ThreadPool();
@@ -20,6 +29,40 @@ public class BatchProperties {
 
     private ProgressListeners progressListeners = new ProgressListeners();
 
+    private Pipeline pipeline = new Pipeline();
+
+    private Partitioning partitioning = new Partitioning();
+
+    private Delta delta = new Delta();
+
+    public enum Reader {
+        JPA,
+        JDBC
+    }
+
+    public enum Writer {
+        CONVERTER,
+        RAW_BSON
+    }
+
+    public enum LoadMode {
+        UPSERT,
+        INSERT,
+        AUTO
+    }
+
+    @Data
+    public static class IdMapping {
+        private Mode mode = Mode.STORED;
+
+        private String namespace = "r2m";
+
+        public enum Mode {
+            STORED,
+            DETERMINISTIC
+        }
+    }
+
     @Data
     public static class IdMappingCache {
         private long maximumSize = 500_000;
@@ -43,10 +86,6 @@ public class BatchProperties {
         private int authors = 500;
 
         private int genres = 1000;
-
-        private int books = 200;
-
-        private int comments = 5000;
     }
 
     @Data
@@ -59,4 +98,51 @@ public class BatchProperties {
 
         private int comments = 20_000;
     }
+
+    @Data
+    public static class Pipeline {
+        private int maxInFlight = 0;
+
+        private int writeThreads = 4;
+    }
+
+    /**
+     * Размеры партиционированных шагов (книги, комментарии) выводятся из числа строк.
+     */
+    @Data
+    public static class Partitioning {
+        private long targetPartitionSize = 50_000;
+
+        private int maxGridSize = 16;
+
+        private int threads = 4;
+
+        private int chunksPerPartition = 10;
+
+        private int minChunkSize = 500;
+
+        private int maxChunkSize = 20_000;
+
+        public int gridSize(long rows, int maxGrid) {
+            long wanted = -Math.floorDiv(-rows, Math.max(1, targetPartitionSize));
+            return (int) Math.max(1, Math.min(wanted, Math.max(1, maxGrid)));
+        }
+
+        public int chunkSize(long partitionRows) {
+            long wanted = -Math.floorDiv(-partitionRows, Math.max(1, chunksPerPartition));
+            return (int) Math.max(minChunkSize, Math.min(wanted, maxChunkSize));
+        }
+    }
+
+    /**
+     * Окно дельта-миграции начинается с отметки прошлого запуска минус {@code overlap}: транзакция,
+     * начатая до отметки и закоммиченная после, несёт {@code updated_at} из прошлого окна.
+     * Повторно прочитанные строки просто перезаписываются upsert'ом.
+     */
+    @Data
+    public static class Delta {
+        private Duration overlap = Duration.ofMinutes(1);
+
+        private int chunkSize = 1000;
+    }
 }
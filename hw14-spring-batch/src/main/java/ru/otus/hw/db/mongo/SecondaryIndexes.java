@@ -0,0 +1,55 @@
+package ru.otus.hw.db.mongo;
+
+import lombok.experimental.UtilityClass;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Вторичные индексы целевых коллекций. Создаются миграцией {@code CreateIndexes}; при первичной
+ * загрузке неуникальные снимаются на время вставки и строятся заново одним проходом после неё.
+ * Уникальные не снимаются никогда: без них упавшая или перезапущенная загрузка могла бы оставить дубли,
+ * на которых последующее построение индекса уже не пройдёт.
+ * Имена не задаются явно, поэтому Mongo называет индекс {@code <поле>_1}.
+ */
+@UtilityClass
+public class SecondaryIndexes {
+
+    private final Map<String, List<IndexSpec>> BY_COLLECTION = Map.of(
+            "genres", List.of(new IndexSpec("name", true)),
+            "authors", List.of(new IndexSpec("fullName", true)),
+            "comments", List.of(new IndexSpec("bookId", false), new IndexSpec("createdAt", false))
+    );
+
+    public void ensure(MongoOperations mongo, String collection) {
+        var ops = mongo.indexOps(collection);
+        for (IndexSpec spec : BY_COLLECTION.getOrDefault(collection, List.of())) {
+            var index = new Index().on(spec.field(), Sort.Direction.ASC);
+            ops.createIndex(spec.unique() ? index.unique() : index);
+        }
+    }
+
+    /**
+     * Снимает неуникальные индексы коллекции; уникальные остаются на месте.
+     */
+    public void dropDeferrable(MongoOperations mongo, String collection) {
+        var ops = mongo.indexOps(collection);
+        var existing = ops.getIndexInfo().stream().map(IndexInfo::getName).toList();
+        for (IndexSpec spec : BY_COLLECTION.getOrDefault(collection, List.of())) {
+            if (spec.unique()) {
+                continue;
+            }
+            String name = spec.field() + "_1";
+            if (existing.contains(name)) {
+                ops.dropIndex(name);
+            }
+        }
+    }
+
+    private record IndexSpec(String field, boolean unique) {
+    }
+}
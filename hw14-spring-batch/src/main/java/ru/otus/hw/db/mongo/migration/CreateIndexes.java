@@ -4,10 +4,8 @@ import io.mongock.api.annotations.ChangeUnit;
 import io.mongock.api.annotations.Execution;
 import io.mongock.api.annotations.RollbackExecution;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.index.Index;
-import org.springframework.data.mongodb.core.index.IndexOperations;
+import ru.otus.hw.db.mongo.SecondaryIndexes;
 
 @RequiredArgsConstructor
 @ChangeUnit(
@@ -20,22 +18,9 @@ public class CreateIndexes {
 
     @Execution
     public void up() {
-        ensureUnique("genres", "name");
-        ensureUnique("authors", "fullName");
-
-        index("comments", "bookId");
-
-        index("comments", "createdAt");
-    }
-
-    private void ensureUnique(String collection, String field) {
-        IndexOperations operations = mongo.indexOps(collection);
-        operations.createIndex(new Index().on(field, Sort.Direction.ASC).unique());
-    }
-
-    private void index(String collection, String field) {
-        IndexOperations operations = mongo.indexOps(collection);
-        operations.createIndex(new Index().on(field, Sort.Direction.ASC));
+        SecondaryIndexes.ensure(mongo, "genres");
+        SecondaryIndexes.ensure(mongo, "authors");
+        SecondaryIndexes.ensure(mongo, "comments");
     }
 
     @RollbackExecution
@@ -0,0 +1,119 @@
+package ru.otus.hw.batch.rdbms2mongo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.otus.hw.config.BatchProperties;
+
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.otus.hw.batch.rdbms2mongo.IdRangePartitioner.CHUNK_SIZE_KEY;
+import static ru.otus.hw.batch.rdbms2mongo.IdRangePartitioner.MAX_ID_KEY;
+import static ru.otus.hw.batch.rdbms2mongo.IdRangePartitioner.MIN_ID_KEY;
+
+class IdRangePartitionerTest {
+
+    private EmbeddedDatabase db;
+
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        db = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbc = new JdbcTemplate(db);
+        jdbc.execute("create table items(id bigint primary key)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should split by row rank so gaps in ids do not skew partitions")
+    void splitsByRowRank() {
+        insert(LongStream.rangeClosed(1, 10));
+        insert(LongStream.rangeClosed(1000, 1009));
+        insert(LongStream.of(1_000_000));
+
+        var partitions = new IdRangePartitioner(jdbc, "items", null).partition(3);
+
+        assertThat(partitions).hasSize(3);
+        assertRange(partitions.get("p0"), 1, 7);
+        assertRange(partitions.get("p1"), 8, 1003);
+        assertRange(partitions.get("p2"), 1004, 1_000_000);
+    }
+
+    @Test
+    @DisplayName("Should return a single empty range for an empty table")
+    void emptyTable() {
+        var partitions = new IdRangePartitioner(jdbc, "items", null).partition(4);
+
+        assertThat(partitions).hasSize(1);
+        var ctx = partitions.get("p0");
+        assertThat(ctx.getLong(MIN_ID_KEY)).isGreaterThan(ctx.getLong(MAX_ID_KEY));
+    }
+
+    @Test
+    @DisplayName("Should not create more partitions than rows")
+    void fewerRowsThanGrid() {
+        insert(LongStream.of(5, 6));
+
+        var partitions = new IdRangePartitioner(jdbc, "items", null).partition(8);
+
+        assertThat(partitions).hasSize(2);
+        assertRange(partitions.get("p0"), 5, 5);
+        assertRange(partitions.get("p1"), 6, 6);
+    }
+
+    @Test
+    @DisplayName("Should derive the grid and chunk size from the row count")
+    void sizedByRowCount() {
+        insert(LongStream.rangeClosed(1, 95));
+        var sizing = new BatchProperties.Partitioning();
+        sizing.setTargetPartitionSize(40);
+        sizing.setChunksPerPartition(4);
+        sizing.setMinChunkSize(5);
+        sizing.setMaxChunkSize(100);
+
+        var partitions = new IdRangePartitioner(jdbc, "items", sizing).partition(16);
+
+        assertThat(partitions).hasSize(3);
+        assertRange(partitions.get("p0"), 1, 32);
+        assertRange(partitions.get("p2"), 65, 95);
+        assertThat(partitions.values())
+                .allSatisfy(ctx -> assertThat(ctx.getInt(CHUNK_SIZE_KEY)).isEqualTo(8));
+    }
+
+    @Test
+    @DisplayName("Should cap the derived grid at the step grid size")
+    void derivedGridCapped() {
+        insert(LongStream.rangeClosed(1, 95));
+        var sizing = new BatchProperties.Partitioning();
+        sizing.setTargetPartitionSize(10);
+
+        var partitions = new IdRangePartitioner(jdbc, "items", sizing).partition(2);
+
+        assertThat(partitions).hasSize(2);
+        assertThat(partitions.get("p0").getInt(CHUNK_SIZE_KEY)).isEqualTo(sizing.getMinChunkSize());
+    }
+
+    private void insert(LongStream ids) {
+        ids.forEach(id -> jdbc.update("insert into items(id) values (?)", id));
+    }
+
+    private static void assertRange(ExecutionContext ctx, long min, long max) {
+        assertThat(ctx.getLong(MIN_ID_KEY)).isEqualTo(min);
+        assertThat(ctx.getLong(MAX_ID_KEY)).isEqualTo(max);
+    }
+}
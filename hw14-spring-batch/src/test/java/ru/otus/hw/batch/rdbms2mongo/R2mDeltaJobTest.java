@@ -0,0 +1,201 @@
+package ru.otus.hw.batch.rdbms2mongo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.JobRepositoryTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.otus.hw.MongoCommonContext;
+import ru.otus.hw.persistence.mongo.model.AuthorDocument;
+import ru.otus.hw.persistence.mongo.model.GenreDocument;
+import ru.otus.hw.persistence.mongo.repository.MongoAuthorRepository;
+import ru.otus.hw.persistence.mongo.repository.MongoBookRepository;
+import ru.otus.hw.persistence.mongo.repository.MongoCommentRepository;
+import ru.otus.hw.persistence.mongo.repository.MongoGenreRepository;
+import ru.otus.hw.persistence.rdbms.model.Author;
+import ru.otus.hw.persistence.rdbms.model.Book;
+import ru.otus.hw.persistence.rdbms.model.Comment;
+import ru.otus.hw.persistence.rdbms.model.Genre;
+import ru.otus.hw.persistence.rdbms.repository.AuthorRepository;
+import ru.otus.hw.persistence.rdbms.repository.BookRepository;
+import ru.otus.hw.persistence.rdbms.repository.CommentRepository;
+import ru.otus.hw.persistence.rdbms.repository.GenreRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.batch.core.BatchStatus.COMPLETED;
+
+@SpringBootTest(properties = "app.batch.delta.overlap=0s")
+@SpringBatchTest
+class R2mDeltaJobTest extends MongoCommonContext {
+
+    private static final List<String> MONGO_COLLECTIONS =
+            List.of("authors", "genres", "books", "comments", "id_mappings", "delta_marks");
+
+    @Autowired
+    private JobLauncherTestUtils jobLauncherTestUtils;
+
+    @Autowired
+    private JobRepositoryTestUtils jobRepositoryTestUtils;
+
+    @Autowired
+    private Job rdbmsToMongoJob;
+
+    @Autowired
+    private Job rdbmsToMongoDeltaJob;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AuthorRepository relationalAuthors;
+
+    @Autowired
+    private GenreRepository relationalGenres;
+
+    @Autowired
+    private BookRepository relationalBooks;
+
+    @Autowired
+    private CommentRepository relationalComments;
+
+    @Autowired
+    private MongoAuthorRepository mongoAuthors;
+
+    @Autowired
+    private MongoGenreRepository mongoGenres;
+
+    @Autowired
+    private MongoBookRepository mongoBooks;
+
+    @Autowired
+    private MongoCommentRepository mongoComments;
+
+    private Author author;
+
+    private Genre fantasy;
+
+    private Genre epic;
+
+    private Book book;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jobRepositoryTestUtils.removeJobExecutions();
+        relationalComments.deleteAll();
+        relationalBooks.deleteAll();
+        relationalGenres.deleteAll();
+        relationalAuthors.deleteAll();
+        MONGO_COLLECTIONS.forEach(mongoTemplate::dropCollection);
+
+        author = relationalAuthors.save(new Author(null, "Frank Herbert"));
+        relationalAuthors.save(new Author(null, "Ray Bradbury"));
+        fantasy = relationalGenres.save(new Genre(null, "Fantasy"));
+        epic = relationalGenres.save(new Genre(null, "Epic"));
+        book = relationalBooks.save(new Book(null, "Dune", author, List.of(fantasy, epic)));
+        relationalComments.save(new Comment(null, "Great book!", book, LocalDateTime.now()));
+
+        assertThat(launch(rdbmsToMongoJob).getStatus()).isEqualTo(COMPLETED);
+    }
+
+    @Test
+    @DisplayName("Should migrate only rows changed since the full load")
+    void shouldMigrateOnlyChangedRows() throws Exception {
+        jdbc.update("update authors set full_name = ? where id = ?", "Frank P. Herbert", author.getId());
+        relationalGenres.save(new Genre(null, "Mystery"));
+
+        JobExecution delta = launch(rdbmsToMongoDeltaJob);
+
+        assertThat(delta.getStatus()).isEqualTo(COMPLETED);
+        assertThat(readCount(delta, "authorsDeltaStep")).isEqualTo(1);
+        assertThat(readCount(delta, "genresDeltaStep")).isEqualTo(1);
+        assertThat(readCount(delta, "booksDeltaStep")).isZero();
+        assertThat(readCount(delta, "commentsDeltaStep")).isZero();
+        assertThat(mongoAuthors.findAll()).extracting(AuthorDocument::getFullName)
+                .containsExactlyInAnyOrder("Frank P. Herbert", "Ray Bradbury");
+        assertThat(mongoGenres.findAll()).extracting(GenreDocument::getName)
+                .containsExactlyInAnyOrder("Fantasy", "Epic", "Mystery");
+    }
+
+    @Test
+    @DisplayName("Should read nothing when a delta follows another delta without changes")
+    void shouldAdvanceMarks() throws Exception {
+        jdbc.update("update genres set name = ? where id = ?", "High Fantasy", fantasy.getId());
+        launch(rdbmsToMongoDeltaJob);
+
+        JobExecution second = launch(rdbmsToMongoDeltaJob);
+
+        assertThat(second.getStatus()).isEqualTo(COMPLETED);
+        assertThat(second.getStepExecutions()).allSatisfy(step -> assertThat(step.getReadCount()).isZero());
+    }
+
+    @Test
+    @DisplayName("Should refresh a book whose genre links changed")
+    void shouldRefreshBookOnGenreLinkChange() throws Exception {
+        jdbc.update("delete from books_genres where book_id = ? and genre_id = ?", book.getId(), epic.getId());
+
+        JobExecution delta = launch(rdbmsToMongoDeltaJob);
+
+        assertThat(readCount(delta, "booksDeltaStep")).isEqualTo(1);
+        assertThat(mongoBooks.findAll()).singleElement()
+                .satisfies(doc -> assertThat(doc.getGenres()).extracting(GenreDocument::getName)
+                        .containsExactly("Fantasy"));
+    }
+
+    @Test
+    @DisplayName("Should delete documents of deleted rows including cascaded ones and purge applied tombstones")
+    void shouldApplyDeletes() throws Exception {
+        jdbc.update("delete from books where id = ?", book.getId());
+
+        JobExecution delta = launch(rdbmsToMongoDeltaJob);
+
+        assertThat(delta.getStatus()).isEqualTo(COMPLETED);
+        assertThat(mongoBooks.count()).isZero();
+        assertThat(mongoComments.count()).isZero();
+        assertThat(mongoAuthors.count()).isEqualTo(2);
+        assertThat(mongoGenres.count()).isEqualTo(2);
+        assertThat(jdbc.queryForObject("select count(*) from deleted_rows", Long.class)).isZero();
+    }
+
+    @Test
+    @DisplayName("Should not create id mappings for rows deleted before they were migrated")
+    void shouldNotMapUnmigratedDeletedRows() throws Exception {
+        long mappings = mongoTemplate.getCollection("id_mappings").countDocuments();
+        var shortLived = relationalGenres.save(new Genre(null, "Short-lived"));
+        relationalGenres.deleteById(shortLived.getId());
+
+        JobExecution delta = launch(rdbmsToMongoDeltaJob);
+
+        assertThat(delta.getStatus()).isEqualTo(COMPLETED);
+        assertThat(mongoTemplate.getCollection("id_mappings").countDocuments()).isEqualTo(mappings);
+        assertThat(mongoGenres.count()).isEqualTo(2);
+    }
+
+    private JobExecution launch(Job job) throws Exception {
+        jobLauncherTestUtils.setJob(job);
+        return jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+                .addLong("timestamp", System.nanoTime())
+                .toJobParameters());
+    }
+
+    private static long readCount(JobExecution exec, String stepName) {
+        return exec.getStepExecutions().stream()
+                .filter(step -> step.getStepName().equals(stepName))
+                .mapToLong(StepExecution::getReadCount)
+                .sum();
+    }
+}
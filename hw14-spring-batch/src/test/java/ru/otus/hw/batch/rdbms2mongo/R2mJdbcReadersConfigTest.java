@@ -0,0 +1,99 @@
+package ru.otus.hw.batch.rdbms2mongo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.JobRepositoryTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.otus.hw.MongoCommonContext;
+import ru.otus.hw.persistence.mongo.model.BookDocument;
+import ru.otus.hw.persistence.mongo.model.GenreDocument;
+import ru.otus.hw.persistence.mongo.repository.MongoBookRepository;
+import ru.otus.hw.persistence.mongo.repository.MongoCommentRepository;
+import ru.otus.hw.persistence.rdbms.model.Author;
+import ru.otus.hw.persistence.rdbms.model.Book;
+import ru.otus.hw.persistence.rdbms.model.Comment;
+import ru.otus.hw.persistence.rdbms.model.Genre;
+import ru.otus.hw.persistence.rdbms.repository.AuthorRepository;
+import ru.otus.hw.persistence.rdbms.repository.BookRepository;
+import ru.otus.hw.persistence.rdbms.repository.CommentRepository;
+import ru.otus.hw.persistence.rdbms.repository.GenreRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.batch.core.BatchStatus.COMPLETED;
+
+@SpringBootTest(properties = "app.batch.reader=jdbc")
+@SpringBatchTest
+class R2mJdbcReadersConfigTest extends MongoCommonContext {
+
+    @Autowired
+    private JobLauncherTestUtils jobLauncherTestUtils;
+
+    @Autowired
+    private JobRepositoryTestUtils jobRepositoryTestUtils;
+
+    @Autowired
+    private AuthorRepository rAuthors;
+    @Autowired
+    private GenreRepository rGenres;
+    @Autowired
+    private BookRepository rBooks;
+    @Autowired
+    private CommentRepository rComments;
+
+    @Autowired
+    private MongoBookRepository mongoBooks;
+
+    @Autowired
+    private MongoCommentRepository mongoComments;
+
+    @BeforeEach
+    void setUp() {
+        jobRepositoryTestUtils.removeJobExecutions();
+        rComments.deleteAll();
+        rBooks.deleteAll();
+        rGenres.deleteAll();
+        rAuthors.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should migrate books with genres aggregated in SQL")
+    void shouldMigrateBooksWithAggregatedGenres() throws Exception {
+        var author = rAuthors.save(new Author(null, "Frank Herbert"));
+        var sciFi = rGenres.save(new Genre(null, "Sci-Fi"));
+        var adventure = rGenres.save(new Genre(null, "Adventure"));
+        var dune = rBooks.save(new Book(null, "Dune", author, new ArrayList<>(List.of(sciFi, adventure))));
+        rBooks.save(new Book(null, "Untagged", author, new ArrayList<>()));
+        rComments.save(new Comment(null, "Spice", dune, LocalDateTime.of(2024, 1, 15, 10, 30)));
+
+        JobExecution exec = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+                .addLong("time", System.currentTimeMillis())
+                .toJobParameters());
+
+        assertThat(exec.getStatus()).isEqualTo(COMPLETED);
+        assertThat(findBook("Dune").getAuthor().getFullName()).isEqualTo("Frank Herbert");
+        assertThat(findBook("Dune").getGenres())
+                .extracting(GenreDocument::getName)
+                .containsExactly("Sci-Fi", "Adventure");
+        assertThat(findBook("Untagged").getGenres()).isEmpty();
+        assertThat(mongoComments.findAllByBookId(findBook("Dune").getId()))
+                .singleElement()
+                .satisfies(c -> assertThat(c.getCreatedAt()).isEqualTo(LocalDateTime.of(2024, 1, 15, 10, 30)));
+    }
+
+    private BookDocument findBook(String title) {
+        return mongoBooks.findAll().stream()
+                .filter(book -> title.equals(book.getTitle()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Book not found: " + title));
+    }
+}
@@ -41,8 +41,8 @@ class R2mReadersConfigTest {
     private CommentRepository rComments;
 
     @Test
-    @DisplayName("Comments step runs worker partitions")
-    void commentsPartitionWorkersExecuted() throws Exception {
+    @DisplayName("Books and comments steps run worker partitions")
+    void booksAndCommentsPartitionWorkersExecuted() throws Exception {
         var a = rAuthors.save(new Author(null, "A"));
         var g = rGenres.save(new Genre(null, "G"));
         var b = rBooks.save(new Book(null, "B", a, new ArrayList<>(List.of(g))));
@@ -54,12 +54,15 @@ class R2mReadersConfigTest {
                 .toJobParameters());
         assertThat(exec.getExitStatus().getExitCode()).isEqualTo("COMPLETED");
 
-        long workerSteps = exec.getStepExecutions().stream()
+        assertThat(workerSteps(exec, "commentsWorker")).isGreaterThanOrEqualTo(1);
+        assertThat(workerSteps(exec, "booksWorker")).isGreaterThanOrEqualTo(1);
+    }
+
+    private static long workerSteps(JobExecution exec, String prefix) {
+        return exec.getStepExecutions().stream()
                 .map(StepExecution::getStepName)
-                .filter(name -> name.startsWith("commentsWorker"))
+                .filter(name -> name.startsWith(prefix))
                 .count();
-
-        assertThat(workerSteps).isGreaterThanOrEqualTo(1);
     }
 
 }
\ No newline at end of file
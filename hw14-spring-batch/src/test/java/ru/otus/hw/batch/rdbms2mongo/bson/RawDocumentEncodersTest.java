@@ -0,0 +1,92 @@
+package ru.otus.hw.batch.rdbms2mongo.bson;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.ByteBuf;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import ru.otus.hw.persistence.mongo.model.AuthorDocument;
+import ru.otus.hw.persistence.mongo.model.BookDocument;
+import ru.otus.hw.persistence.mongo.model.CommentDocument;
+import ru.otus.hw.persistence.mongo.model.GenreDocument;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RawDocumentEncodersTest {
+
+    private final MappingMongoConverter converter = converter();
+
+    @Test
+    @DisplayName("Should encode authors and genres byte for byte as the converter writes them")
+    void shouldEncodeFlatDocuments() {
+        var author = new AuthorDocument(new ObjectId(), "Frank Herbert");
+        var genre = new GenreDocument(new ObjectId(), "Sci-Fi");
+
+        assertThat(bytes(RawDocumentEncoders.AUTHOR.encode(author))).isEqualTo(expected(author));
+        assertThat(bytes(RawDocumentEncoders.GENRE.encode(genre))).isEqualTo(expected(genre));
+    }
+
+    @Test
+    @DisplayName("Should encode book references as DBRefs byte for byte as the converter writes them")
+    void shouldEncodeBookReferences() {
+        var author = new AuthorDocument(new ObjectId(), "Frank Herbert");
+        var genres = new ArrayList<>(List.of(
+                new GenreDocument(new ObjectId(), "Sci-Fi"),
+                new GenreDocument(new ObjectId(), "Adventure")));
+        var book = new BookDocument(new ObjectId(), "Dune", author, genres);
+        var untagged = new BookDocument(new ObjectId(), "Untagged", author, new ArrayList<>());
+
+        assertThat(bytes(RawDocumentEncoders.BOOK.encode(book))).isEqualTo(expected(book));
+        assertThat(bytes(RawDocumentEncoders.BOOK.encode(untagged))).isEqualTo(expected(untagged));
+    }
+
+    @Test
+    @DisplayName("Should encode comments with dates and skip null and transient fields")
+    void shouldEncodeComments() {
+        var comment = new CommentDocument(new ObjectId(), "Spice", new ObjectId(),
+                LocalDateTime.of(2024, 1, 15, 10, 30, 45, 123_000_000), null);
+        var bare = new CommentDocument(new ObjectId(), null, null, null, null);
+
+        assertThat(bytes(RawDocumentEncoders.COMMENT.encode(comment))).isEqualTo(expected(comment));
+        assertThat(bytes(RawDocumentEncoders.COMMENT.encode(bare))).isEqualTo(expected(bare));
+    }
+
+    /**
+     * Байты документа, который пишет конвертер: порядок полей тоже сравнивается.
+     */
+    private byte[] expected(Object item) {
+        var doc = new Document();
+        converter.write(item, doc);
+        var bson = doc.toBsonDocument(Document.class, MongoClientSettings.getDefaultCodecRegistry());
+        return bytes(new RawBsonDocument(bson, new BsonDocumentCodec()));
+    }
+
+    private static byte[] bytes(RawBsonDocument document) {
+        ByteBuf buffer = document.getByteBuffer();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static MappingMongoConverter converter() {
+        var conversions = new MongoCustomConversions(List.of());
+        var context = new MongoMappingContext();
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        context.afterPropertiesSet();
+        var converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.otus.hw.batch.rdbms2mongo.idmap;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.otus.hw.config.BatchProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeterministicIdMappingServiceTest {
+
+    private final DeterministicIdMappingService service = new DeterministicIdMappingService(new BatchProperties());
+
+    @Test
+    @DisplayName("Same source id always maps to the same ObjectId")
+    void isStableAcrossInstances() {
+        var other = new DeterministicIdMappingService(new BatchProperties());
+
+        assertThat(service.resolve("book", "42")).isEqualTo(other.resolve("book", "42"));
+    }
+
+    @Test
+    @DisplayName("Same numeric id of different types maps to different ObjectIds")
+    void separatesTypes() {
+        assertThat(service.resolve("book", "42")).isNotEqualTo(service.resolve("author", "42"));
+    }
+
+    @Test
+    @DisplayName("Numeric ids of one type keep their order")
+    void keepsOrderWithinType() {
+        assertThat(service.resolve("comment", "9")).isLessThan(service.resolve("comment", "10"));
+    }
+
+    @Test
+    @DisplayName("Namespace changes the derived ids")
+    void dependsOnNamespace() {
+        var props = new BatchProperties();
+        props.getIdMapping().setNamespace("other");
+
+        assertThat(new DeterministicIdMappingService(props).resolve("book", "42"))
+                .isNotEqualTo(service.resolve("book", "42"));
+    }
+
+    @Test
+    @DisplayName("Non-numeric source ids are hashed")
+    void hashesNonNumericIds() {
+        assertThat(service.resolve("genre", "sci-fi")).isEqualTo(service.resolve("genre", "sci-fi"))
+                .isNotEqualTo(service.resolve("genre", "fantasy"));
+    }
+}
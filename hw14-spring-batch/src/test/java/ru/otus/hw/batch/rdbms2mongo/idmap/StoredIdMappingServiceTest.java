@@ -0,0 +1,72 @@
+package ru.otus.hw.batch.rdbms2mongo.idmap;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.otus.hw.MongoCommonContext;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+@SpringBootTest
+class StoredIdMappingServiceTest extends MongoCommonContext {
+
+    @Autowired
+    private StoredIdMappingService service;
+
+    @Autowired
+    private IdMappingRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Prefetch keeps existing mappings and creates missing ones in bulk")
+    void prefetchKeepsExistingAndCreatesMissing() {
+        var existing = new ObjectId();
+        repository.save(new IdMappingDocument(null, "prefetch-author", "1", existing));
+
+        service.prefetch("prefetch-author", List.of("1", "2", "3"));
+
+        assertThat(repository.count()).isEqualTo(3);
+        assertThat(service.resolve("prefetch-author", "1")).isEqualTo(existing);
+        assertThat(service.resolve("prefetch-author", "2"))
+                .isEqualTo(repository.findBySourceTypeAndSourceId("prefetch-author", "2")
+                        .orElseThrow()
+                        .getTargetId());
+    }
+
+    @Test
+    @DisplayName("Prefetch is idempotent for already resolved ids")
+    void prefetchIsIdempotent() {
+        var refs = new SourceIds();
+        refs.add("prefetch-book", 10L);
+        refs.add("prefetch-book", 11L);
+
+        service.prefetch(refs);
+        var first = service.resolve("prefetch-book", "10");
+        service.prefetch(refs);
+
+        assertThat(repository.count()).isEqualTo(2);
+        assertThat(service.resolve("prefetch-book", "10")).isEqualTo(first);
+    }
+
+    @Test
+    @DisplayName("Lookup returns existing mappings and creates none for unknown ids")
+    void lookupIsReadOnly() {
+        var existing = new ObjectId();
+        repository.save(new IdMappingDocument(null, "lookup-genre", "1", existing));
+
+        var found = service.lookup("lookup-genre", List.of("1", "2"));
+
+        assertThat(found).containsOnly(entry("1", existing));
+        assertThat(repository.count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,81 @@
+package ru.otus.hw.batch.rdbms2mongo.load;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoadModeItemWriterTest {
+
+    private final List<String> inserted = new ArrayList<>();
+
+    private final List<String> upserted = new ArrayList<>();
+
+    @Test
+    @DisplayName("Should insert on the first run of a step allowed by the plan")
+    void shouldInsertOnFirstRun() throws Exception {
+        var writer = writer(true, false);
+        var context = new ExecutionContext();
+
+        writer.open(context);
+        writer.write(Chunk.of("a", "b"));
+
+        assertThat(inserted).containsExactly("a", "b");
+        assertThat(upserted).isEmpty();
+        assertThat(context.getString(LoadModeItemWriter.MODE_KEY)).isEqualTo("insert");
+    }
+
+    @Test
+    @DisplayName("Should upsert when the step is restarted")
+    void shouldUpsertOnRestart() throws Exception {
+        var previousRun = new ExecutionContext();
+        writer(true, false).open(previousRun);
+
+        var writer = writer(true, false);
+        writer.open(previousRun);
+        writer.write(Chunk.of("a"));
+
+        assertThat(inserted).isEmpty();
+        assertThat(upserted).containsExactly("a");
+    }
+
+    @Test
+    @DisplayName("Should upsert when the plan does not allow insert")
+    void shouldUpsertWhenNotPlanned() throws Exception {
+        var writer = writer(false, false);
+        writer.open(new ExecutionContext());
+        writer.write(Chunk.of("a"));
+
+        assertThat(upserted).containsExactly("a");
+    }
+
+    @Test
+    @DisplayName("Should rewrite the chunk with upsert and stay on upsert after a duplicate key")
+    void shouldFallBackOnDuplicateKey() throws Exception {
+        var writer = writer(true, true);
+        writer.open(new ExecutionContext());
+
+        writer.write(Chunk.of("a"));
+        writer.write(Chunk.of("b"));
+
+        assertThat(inserted).isEmpty();
+        assertThat(upserted).containsExactly("a", "b");
+    }
+
+    private LoadModeItemWriter<String> writer(boolean insertAllowed, boolean duplicates) {
+        return new LoadModeItemWriter<>("authors", insertAllowed,
+                chunk -> {
+                    if (duplicates) {
+                        throw new DuplicateKeyException("E11000 duplicate key");
+                    }
+                    inserted.addAll(chunk.getItems());
+                },
+                chunk -> upserted.addAll(chunk.getItems()));
+    }
+}
@@ -0,0 +1,79 @@
+package ru.otus.hw.batch.rdbms2mongo.metrics;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.Chunk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MigrationMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final MigrationMetrics metrics = new MigrationMetrics(registry);
+
+    @Test
+    @DisplayName("Should record chunk latency, phase split, items and throughput per step")
+    void shouldRecordStepMetrics() {
+        var listener = metrics.stepListener("authorsStep");
+        var step = new StepExecution("authorsStep", new JobExecution(1L));
+
+        listener.beforeStep(step);
+        listener.beforeChunk(null);
+        for (String item : new String[]{"a", "b"}) {
+            listener.beforeRead();
+            listener.afterRead(item);
+            listener.beforeProcess(item);
+            listener.afterProcess(item, item);
+        }
+        listener.beforeWrite(Chunk.of("a", "b"));
+        listener.afterWrite(Chunk.of("a", "b"));
+        listener.afterChunk(null);
+        listener.afterStep(step);
+
+        assertThat(registry.get(MigrationMetrics.CHUNK).tag("step", "authorsStep").timer().count()).isEqualTo(1);
+        assertThat(registry.get(MigrationMetrics.PHASE).tag("step", "authorsStep").tag("phase", "read")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get(MigrationMetrics.ITEMS).tag("step", "authorsStep").counter().count())
+                .isEqualTo(2);
+        assertThat(registry.get(MigrationMetrics.THROUGHPUT).tag("step", "authorsStep").gauge().value())
+                .isPositive();
+        assertThat(metrics.report()).contains("authorsStep", "items=2", "chunks=1");
+    }
+
+    @Test
+    @DisplayName("Should share one listener per step name")
+    void shouldReuseListenerPerStep() {
+        assertThat(metrics.stepListener("booksWorker")).isSameAs(metrics.stepListener("booksWorker"));
+    }
+
+    @Test
+    @DisplayName("Should time Mongo writes including failed ones")
+    void shouldTimeMongoWrites() throws Exception {
+        metrics.timedWriter("books", "upsert", chunk -> { }).write(Chunk.of("a"));
+        var failing = metrics.<String>timedWriter("books", "upsert", chunk -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertThatThrownBy(() -> failing.write(Chunk.of("b"))).isInstanceOf(IllegalStateException.class);
+        assertThat(registry.get(MigrationMetrics.MONGO_WRITE).tag("collection", "books").tag("operation", "upsert")
+                .timer().count()).isEqualTo(2);
+        assertThat(metrics.report()).contains("books", "upsert", "calls=2");
+    }
+
+    @Test
+    @DisplayName("Should report the id mapping cache hit ratio per source type")
+    void shouldReportIdCacheHitRatio() {
+        var cache = metrics.monitorIdCache("author", Caffeine.newBuilder().recordStats().<String, String>build());
+        cache.put("1", "x");
+        cache.getIfPresent("1");
+        cache.getIfPresent("2");
+
+        assertThat(metrics.report()).contains("author", "hit ratio=50.0% (hits=1, misses=1)");
+    }
+}
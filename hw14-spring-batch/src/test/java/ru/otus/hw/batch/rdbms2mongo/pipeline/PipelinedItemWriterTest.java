@@ -0,0 +1,152 @@
+package ru.otus.hw.batch.rdbms2mongo.pipeline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemWriter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PipelinedItemWriterTest {
+
+    private static final String READ_COUNT = "reader.read.count";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private final List<String> written = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should keep the reader checkpoint at the last chunk whose write has completed")
+    void shouldHoldCheckpointUntilWriteCompletes() throws Exception {
+        var writer = new PipelinedItemWriter<String>(blockingOn("b"), executor, 2);
+        var context = new ExecutionContext();
+        writer.open(context);
+
+        chunk(writer, context, 1, "a");
+        awaitWritten("a");
+        chunk(writer, context, 2, "b");
+
+        assertThat(context.getInt(READ_COUNT)).isEqualTo(1);
+
+        release.countDown();
+        var step = completedStep(context);
+        assertThat(writer.afterStep(step)).isNull();
+        assertThat(context.getInt(READ_COUNT)).isEqualTo(2);
+        assertThat(written).containsExactly("a", "b");
+    }
+
+    @Test
+    @DisplayName("Should fail the step and keep the last durable checkpoint when a write fails")
+    void shouldFailStepOnWriteError() throws Exception {
+        var writer = new PipelinedItemWriter<String>(failingOn("b"), executor, 2);
+        var context = new ExecutionContext();
+        writer.open(context);
+
+        chunk(writer, context, 1, "a");
+        awaitWritten("a");
+        chunk(writer, context, 2, "b");
+
+        release.countDown();
+        var step = completedStep(context);
+        ExitStatus exit = writer.afterStep(step);
+
+        assertThat(exit.getExitCode()).isEqualTo(ExitStatus.FAILED.getExitCode());
+        assertThat(step.getStatus()).isEqualTo(BatchStatus.FAILED);
+        assertThat(context.getInt(READ_COUNT)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should surface a failed write on the next chunk")
+    void shouldFailNextChunkAfterWriteError() throws Exception {
+        var writer = new PipelinedItemWriter<String>(failingOn("a"), executor, 1);
+        var context = new ExecutionContext();
+        writer.open(context);
+        chunk(writer, context, 1, "a");
+        release.countDown();
+
+        assertThatThrownBy(() -> writer.write(Chunk.of("b")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("write failed: a");
+        assertThat(context.containsKey(READ_COUNT)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should write synchronously when pipelining is off")
+    void shouldWriteSynchronouslyWhenDisabled() throws Exception {
+        var writer = new PipelinedItemWriter<String>(chunk -> written.addAll(chunk.getItems()), executor, 0);
+        var context = new ExecutionContext();
+        writer.open(context);
+
+        chunk(writer, context, 1, "a");
+
+        assertThat(written).containsExactly("a");
+        assertThat(context.getInt(READ_COUNT)).isEqualTo(1);
+    }
+
+    /**
+     * Как в шаге: запись чанка, затем {@code update} читателя и писателя перед коммитом.
+     */
+    private static void chunk(PipelinedItemWriter<String> writer, ExecutionContext context,
+                              int readCount, String item) throws Exception {
+        writer.write(Chunk.of(item));
+        context.putInt(READ_COUNT, readCount);
+        writer.update(context);
+    }
+
+    private ItemWriter<String> blockingOn(String blocked) {
+        return chunk -> {
+            if (chunk.getItems().contains(blocked)) {
+                assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+            }
+            written.addAll(chunk.getItems());
+        };
+    }
+
+    /**
+     * Запись упавшего чанка завершается только после {@code release}, чтобы ошибка не обогнала проверки.
+     */
+    private ItemWriter<String> failingOn(String failed) {
+        return chunk -> {
+            if (chunk.getItems().contains(failed)) {
+                assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+                throw new IllegalStateException("write failed: " + failed);
+            }
+            written.addAll(chunk.getItems());
+        };
+    }
+
+    private void awaitWritten(String item) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!written.contains(item) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static StepExecution completedStep(ExecutionContext context) {
+        var step = new StepExecution("step", null);
+        step.setExecutionContext(context);
+        step.setStatus(BatchStatus.COMPLETED);
+        return step;
+    }
+}
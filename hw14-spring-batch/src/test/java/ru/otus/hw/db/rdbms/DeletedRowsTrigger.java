@@ -0,0 +1,35 @@
+package ru.otus.hw.db.rdbms;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * H2-триггер {@code AFTER DELETE}: записывает удалённую строку в {@code deleted_rows}, откуда её
+ * забирает дельта-миграция. Ключ строки — первая колонка таблицы: {@code id} у сущностей
+ * и {@code book_id} у {@code books_genres}. В PostgreSQL то же делает функция {@code r2m_tombstone}.
+ * Подключается тестовым {@code db.changelog-test.xml}.
+ */
+public class DeletedRowsTrigger implements Trigger {
+
+    private static final String INSERT = "insert into deleted_rows(table_name, row_id) values (?, ?)";
+
+    private String table;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                     boolean before, int type) {
+        this.table = tableName.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        try (var statement = conn.prepareStatement(INSERT)) {
+            statement.setString(1, table);
+            statement.setLong(2, ((Number) oldRow[0]).longValue());
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ru.otus.hw.ratelimit.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.util.UUIDConverter;
+import org.springframework.messaging.Message;
+import ru.otus.hw.ratelimit.config.DetectorProperties;
+import ru.otus.hw.ratelimit.domain.CorrelationMode;
+import ru.otus.hw.ratelimit.domain.LogEvent;
+import ru.otus.hw.ratelimit.integration.CorrelationKeyResolver;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение старого пути (строка ip|route + копия сообщения с заголовком + MD5 в UUIDConverter агрегатора)
+ * с хешированным UUID-ключом. Запуск: main из IDE после {@code mvn -Pjmh test-compile};
+ * GC-профайлер показывает allocation rate на операцию.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CorrelationKeyBenchmark {
+
+    private static final int EVENTS = 1024;
+
+    private static final String HDR_CORR = "correlationKey";
+
+    private final Message<?>[] messages = new Message<?>[EVENTS];
+
+    private CorrelationKeyResolver resolver;
+
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        var props = new DetectorProperties(3, Duration.ofSeconds(15), List.of(), CorrelationMode.IP_ROUTE,
+                Duration.ofMillis(100), List.of(), null, null, null, null, null);
+        resolver = new CorrelationKeyResolver(props);
+        Instant now = Instant.parse("2025-01-01T00:00:10Z");
+        for (int i = 0; i < EVENTS; i++) {
+            var event = new LogEvent(now, "client-" + (i % 64), "10.0." + (i % 16) + "." + (i % 251),
+                    "/api/v1/resource-" + (i % 32), 500);
+            messages[i] = MessageBuilder.withPayload(event).build();
+        }
+    }
+
+    @Benchmark
+    public Object legacyStringKeyWithHeaderCopy() {
+        Message<?> message = next();
+        LogEvent event = (LogEvent) message.getPayload();
+        Message<?> enriched = MessageBuilder.fromMessage(message)
+                .setHeader(HDR_CORR, event.ip() + "|" + event.route())
+                .build();
+        return UUIDConverter.getUUID(enriched.getHeaders().get(HDR_CORR));
+    }
+
+    @Benchmark
+    public Object hashedKeyFromPayload() {
+        return UUIDConverter.getUUID(resolver.resolve((LogEvent) next().getPayload()));
+    }
+
+    private Message<?> next() {
+        Message<?> message = messages[cursor];
+        cursor = (cursor + 1) & (EVENTS - 1);
+        return message;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CorrelationKeyBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,235 @@
+package ru.otus.hw.ratelimit.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.InterceptableChannel;
+import ru.otus.hw.ratelimit.Application;
+import ru.otus.hw.ratelimit.domain.Incident;
+import ru.otus.hw.ratelimit.domain.LogEvent;
+import ru.otus.hw.ratelimit.gateway.LogGateway;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузка на весь конвейер детекции в поднятом контексте приложения (Tomcat на случайном порту,
+ * внешних сервисов нет — нотификаторы только пишут в лог, а он приглушён).
+ * <ul>
+ *     <li>{@code gatewayPublish}, {@code httpPost} — пропускная способность в событиях/с
+ *     через {@link LogGateway#publish(LogEvent)} и {@code POST /logs};</li>
+ *     <li>группа {@code underLoad} — задержка детекции (SampleTime, смотреть p0.99 у {@code detection}):
+ *     время от первого события всплеска по новому ключу до попадания инцидента в {@code notifyRouter},
+ *     пока фоновые потоки грузят конвейер выбранным распределением.</li>
+ * </ul>
+ * Запуск: main из IDE после {@code mvn -Pjmh test-compile}; GC-профайлер показывает allocation rate.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DetectionPipelineBenchmark {
+
+    private static final int EVENTS = 1 << 14;
+
+    private static final int THRESHOLD = 3;
+
+    private static final long DETECTION_TIMEOUT_SECONDS = 5;
+
+    @Param({"MANY_KEYS", "HOT_KEYS", "MIXED_STATUSES"})
+    public Distribution distribution;
+
+    private final Map<String, CompletableFuture<Incident>> awaiting = new ConcurrentHashMap<>();
+
+    private final AtomicLong probes = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+
+    private LogGateway gateway;
+
+    private HttpClient http;
+
+    private URI logsUri;
+
+    private LogEvent[] events;
+
+    private String[] bodies;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(Application.class)
+                .properties(
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "logging.level.ru.otus.hw.ratelimit=ERROR",
+                        "detector.rules[0].threshold=" + THRESHOLD,
+                        "detector.rules[0].window=PT15S",
+                        "detector.snapshot.enabled=false")
+                .run();
+        gateway = context.getBean(LogGateway.class);
+        context.getBean("notifyRouter.input", InterceptableChannel.class).addInterceptor(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                var incident = (Incident) message.getPayload();
+                var waiter = awaiting.remove(incident.correlationKey());
+                if (waiter != null) {
+                    waiter.complete(incident);
+                }
+                return message;
+            }
+        });
+        http = HttpClient.newHttpClient();
+        String port = context.getEnvironment().getProperty("local.server.port");
+        logsUri = URI.create("http://localhost:" + port + "/logs");
+
+        var random = new Random(42);
+        events = new LogEvent[EVENTS];
+        bodies = new String[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            events[i] = distribution.next(random);
+            bodies[i] = toJson(events[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void gatewayPublish() {
+        gateway.publish(stamped(nextIndex()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int httpPost() throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(logsUri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(bodies[nextIndex()]))
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    @Group("underLoad")
+    @GroupThreads(3)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void background() {
+        gateway.publish(stamped(nextIndex()));
+    }
+
+    @Benchmark
+    @Group("underLoad")
+    @GroupThreads(1)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Incident detection() throws Exception {
+        String clientId = "probe-" + probes.incrementAndGet();
+        var incident = new CompletableFuture<Incident>();
+        awaiting.put(clientId, incident);
+        for (int i = 0; i < THRESHOLD; i++) {
+            gateway.publish(new LogEvent(Instant.now(), clientId, "10.255.0.1", "/api/probe", 500));
+        }
+        return incident.get(DETECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private int nextIndex() {
+        return ThreadLocalRandom.current().nextInt(EVENTS);
+    }
+
+    private LogEvent stamped(int index) {
+        LogEvent template = events[index];
+        return new LogEvent(Instant.now(), template.clientId(), template.ip(), template.route(), template.status());
+    }
+
+    private static String toJson(LogEvent event) {
+        return "{\"clientId\":\"" + event.clientId() + "\",\"ip\":\"" + event.ip()
+                + "\",\"route\":\"" + event.route() + "\",\"status\":" + event.status() + "}";
+    }
+
+    public enum Distribution {
+        /**
+         * 10 000 клиентов поровну, только ошибки.
+         */
+        MANY_KEYS {
+            @Override
+            LogEvent next(Random random) {
+                return event(random.nextInt(10_000), random, 500);
+            }
+        },
+        /**
+         * 90% событий приходится на 8 «горячих» клиентов, остальное — на длинный хвост.
+         */
+        HOT_KEYS {
+            @Override
+            LogEvent next(Random random) {
+                int client = random.nextInt(10) < 9 ? random.nextInt(8) : 8 + random.nextInt(10_000);
+                return event(client, random, random.nextBoolean() ? 429 : 503);
+            }
+        },
+        /**
+         * 1 000 клиентов, примерно половина статусов отсекается фильтром.
+         */
+        MIXED_STATUSES {
+            @Override
+            LogEvent next(Random random) {
+                return event(random.nextInt(1_000), random, STATUSES[random.nextInt(STATUSES.length)]);
+            }
+        };
+
+        private static final int[] STATUSES = {200, 201, 204, 404, 429, 500, 502, 503};
+
+        abstract LogEvent next(Random random);
+
+        private static LogEvent event(int client, Random random, int status) {
+            String ip = "10.0." + (client % 256) + "." + (client / 256 % 256);
+            String route = "/api/v1/resource-" + random.nextInt(32);
+            return new LogEvent(Instant.EPOCH, "client-" + client, ip, route, status);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DetectionPipelineBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -3,10 +3,12 @@ package ru.otus.hw.ratelimit;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import ru.otus.hw.ratelimit.config.DetectorProperties;
 
 @SpringBootApplication
 @EnableConfigurationProperties(DetectorProperties.class)
+@EnableScheduling
 public class Application {
 
 	public static void main(String[] args) {
@@ -1,9 +1,13 @@
 package ru.otus.hw.ratelimit.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 import ru.otus.hw.ratelimit.domain.CorrelationMode;
+import ru.otus.hw.ratelimit.notify.OverflowPolicy;
 
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.List;
 
 @ConfigurationProperties(prefix = "detector")
 public record DetectorProperties(
@@ -11,6 +15,85 @@ public record DetectorProperties(
 
         Duration window,
 
-        CorrelationMode correlationMode
+        @DefaultValue List<Rule> rules,
+
+        CorrelationMode correlationMode,
+
+        @DefaultValue("PT0.1S") Duration resolution,
+
+        @DefaultValue({"429", "500-599"}) List<String> statuses,
+
+        @DefaultValue Store store,
+
+        @DefaultValue Ingest ingest,
+
+        @DefaultValue Notify notification,
+
+        @DefaultValue Snapshot snapshot,
+
+        @DefaultValue Cooldown cooldown
 ) {
+
+    /**
+     * Правила детекции: явный список {@code detector.rules} или одно правило из {@code threshold}/{@code window}.
+     */
+    public List<Rule> effectiveRules() {
+        return rules == null || rules.isEmpty() ? List.of(new Rule(threshold, window)) : rules;
+    }
+
+    public Duration longestWindow() {
+        return effectiveRules().stream().map(Rule::window).max(Duration::compareTo).orElseThrow();
+    }
+
+    public record Rule(
+            int threshold,
+
+            Duration window
+    ) {
+    }
+
+    public record Store(
+            @DefaultValue("16") int shards,
+
+            @DefaultValue("1000000") int maxMessages,
+
+            @DefaultValue("PT5M") Duration idleTimeout,
+
+            @DefaultValue("PT30S") Duration evictionInterval
+    ) {
+    }
+
+    public record Ingest(
+            @DefaultValue("500") int batchSize
+    ) {
+    }
+
+    public record Notify(
+            @DefaultValue("1000") int queueCapacity,
+
+            @DefaultValue("1") int concurrency,
+
+            @DefaultValue("20") int batchSize,
+
+            @DefaultValue("COALESCE") OverflowPolicy overflowPolicy
+    ) {
+    }
+
+    public record Snapshot(
+            @DefaultValue("false") boolean enabled,
+
+            @DefaultValue("detector-state.bin") Path path,
+
+            @DefaultValue("PT10S") Duration interval
+    ) {
+    }
+
+    public record Cooldown(
+            @DefaultValue("PT1M") Duration ttl,
+
+            @DefaultValue("10000") int maxKeys,
+
+            @DefaultValue("PT1S") Duration flushInterval
+    ) {
+    }
 }
@@ -1,10 +1,15 @@
 package ru.otus.hw.ratelimit.domain;
 
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
+/**
+ * @param revision 0 — новый инцидент; больше нуля — обновление уже отправленного инцидента с тем же {@code id}
+ */
 public record Incident(
         UUID id,
         String correlationKey,
@@ -12,5 +17,50 @@ public record Incident(
         Instant windowStart,
         Instant windowEnd,
         Set<String> sampleRoutes,
-        Map<Integer, Long> statusHistogram
-) {}
\ No newline at end of file
+        Map<Integer, Long> statusHistogram,
+        int revision
+) {
+
+    public Incident(UUID id, String correlationKey, int count, Instant windowStart, Instant windowEnd,
+                    Set<String> sampleRoutes, Map<Integer, Long> statusHistogram) {
+        this(id, correlationKey, count, windowStart, windowEnd, sampleRoutes, statusHistogram, 0);
+    }
+
+    public boolean isUpdate() {
+        return revision > 0;
+    }
+
+    public Incident withRevision(int revision) {
+        return new Incident(id, correlationKey, count, windowStart, windowEnd, sampleRoutes, statusHistogram,
+                revision);
+    }
+
+    /**
+     * Сливает следующий инцидент того же ключа в текущий: id и ревизия сохраняются, счётчики суммируются,
+     * окно расширяется до объединения.
+     */
+    public Incident mergedWith(Incident next) {
+        Set<String> routes = new HashSet<>(sampleRoutes);
+        routes.addAll(next.sampleRoutes());
+        Map<Integer, Long> histogram = new HashMap<>(statusHistogram);
+        next.statusHistogram().forEach((status, n) -> histogram.merge(status, n, Long::sum));
+        return new Incident(
+                id,
+                correlationKey,
+                count + next.count(),
+                windowStart.isBefore(next.windowStart()) ? windowStart : next.windowStart(),
+                windowEnd.isAfter(next.windowEnd()) ? windowEnd : next.windowEnd(),
+                Set.copyOf(routes),
+                Map.copyOf(histogram),
+                revision
+        );
+    }
+
+    /**
+     * Объединяет два ещё не отправленных инцидента одного ключа. Обновление того же инцидента уже содержит
+     * его прежние счётчики и просто заменяет его; разные инциденты сливаются через {@link #mergedWith(Incident)}.
+     */
+    public Incident coalescedWith(Incident next) {
+        return id.equals(next.id()) ? next : mergedWith(next);
+    }
+}
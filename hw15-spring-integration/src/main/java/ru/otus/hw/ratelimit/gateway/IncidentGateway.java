@@ -0,0 +1,10 @@
+package ru.otus.hw.ratelimit.gateway;
+
+import org.springframework.integration.annotation.MessagingGateway;
+import org.springframework.messaging.handler.annotation.Payload;
+import ru.otus.hw.ratelimit.domain.Incident;
+
+@MessagingGateway(defaultRequestChannel = "notifyRouter.input")
+public interface IncidentGateway {
+    void publish(@Payload Incident incident);
+}
@@ -1,11 +1,17 @@
 package ru.otus.hw.ratelimit.gateway;
 
 
+import org.springframework.integration.annotation.Gateway;
 import org.springframework.integration.annotation.MessagingGateway;
 import org.springframework.messaging.handler.annotation.Payload;
 import ru.otus.hw.ratelimit.domain.LogEvent;
 
+import java.util.List;
+
 @MessagingGateway(defaultRequestChannel = "detectionFlow.input")
 public interface LogGateway {
     void publish(@Payload LogEvent log);
+
+    @Gateway(requestChannel = "batchIngestFlow.input")
+    void publishBatch(@Payload List<LogEvent> logs);
 }
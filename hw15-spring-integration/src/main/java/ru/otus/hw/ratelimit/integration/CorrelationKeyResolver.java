@@ -6,15 +6,56 @@ import org.springframework.stereotype.Component;
 import ru.otus.hw.ratelimit.config.DetectorProperties;
 import ru.otus.hw.ratelimit.domain.LogEvent;
 
+import java.util.UUID;
+
+/**
+ * Ключ корреляции — 128-битный хеш полей события, упакованный в {@link UUID}: обе половины
+ * считаются с разными сидами, так что два ключа сливаются в одно окно, только если совпали обе.
+ * Агрегатор всё равно переводит ключ в UUID ради блокировки группы: строку он прогоняет через MD5,
+ * произвольный объект — через сериализацию, а готовый UUID берёт как есть.
+ * Человекочитаемый вид ключа ({@link #describe(LogEvent)}) строится только для инцидента.
+ */
 @Component
 @RequiredArgsConstructor
 public class CorrelationKeyResolver {
+    private static final long CLIENT_ID_SEED = 0x9E3779B97F4A7C15L;
+
+    private static final long CLIENT_ID_SEED_2 = 0x85EBCA77C2B2AE63L;
+
+    private static final long IP_SEED = 0xC2B2AE3D27D4EB4FL;
+
+    private static final long ROUTE_SEED = 0x165667B19E3779F9L;
+
     private final DetectorProperties props;
 
-    public String resolve(LogEvent e) {
+    public UUID resolve(LogEvent e) {
+        return switch (props.correlationMode()) {
+            case CLIENT_ID -> new UUID(hash64(e.clientId(), CLIENT_ID_SEED), hash64(e.clientId(), CLIENT_ID_SEED_2));
+            case IP_ROUTE  -> new UUID(hash64(e.ip(), IP_SEED), hash64(e.route(), ROUTE_SEED));
+        };
+    }
+
+    public String describe(LogEvent e) {
         return switch (props.correlationMode()) {
             case CLIENT_ID -> e.clientId();
             case IP_ROUTE  -> e.ip() + "|" + e.route();
         };
     }
+
+    /**
+     * FNV-1a по символам строки с финальным перемешиванием из MurmurHash3, без промежуточных аллокаций.
+     */
+    static long hash64(String s, long seed) {
+        long h = 0xCBF29CE484222325L ^ seed;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
 }
@@ -0,0 +1,154 @@
+package ru.otus.hw.ratelimit.integration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.otus.hw.ratelimit.config.DetectorProperties;
+import ru.otus.hw.ratelimit.domain.Incident;
+import ru.otus.hw.ratelimit.gateway.IncidentGateway;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Дедупликация инцидентов перед {@code notifyRouter}. Первый инцидент ключа уходит сразу и открывает
+ * период охлаждения {@code ttl}; следующие инциденты того же ключа в этот период не рассылаются,
+ * а сливаются в открывший период инцидент через {@link Incident#mergedWith(Incident)}:
+ * его id и начало окна сохраняются.
+ * Накопленное уходит как обновление этого инцидента ({@link Incident#isUpdate()}), когда период истёк:
+ * перед следующим инцидентом ключа либо плановым {@link #flushExpired()}.
+ * Число ключей ограничено {@code maxKeys}; при переполнении вытесняется самый старый ключ,
+ * его накопленное обновление при этом отправляется, а не теряется.
+ */
+@Component
+public class IncidentCooldown {
+
+    private final IncidentGateway gateway;
+
+    private final Clock clock;
+
+    private final Duration ttl;
+
+    private final int maxKeys;
+
+    private final Counter suppressed;
+
+    /**
+     * Порядок вставки совпадает с порядком истечения: ttl у всех ключей одинаковый,
+     * а при повторном открытии ключ переставляется в конец.
+     */
+    private final LinkedHashMap<String, Entry> open = new LinkedHashMap<>();
+
+    public IncidentCooldown(IncidentGateway gateway, DetectorProperties props, Clock clock, MeterRegistry registry) {
+        this.gateway = gateway;
+        this.clock = clock;
+        this.ttl = props.cooldown().ttl();
+        this.maxKeys = Math.max(1, props.cooldown().maxKeys());
+        this.suppressed = Counter.builder("detector.incident.suppressed")
+                .description("Incidents merged into an open incident of the same key instead of being sent")
+                .register(registry);
+        Gauge.builder("detector.incident.cooldown.keys", this, IncidentCooldown::openKeys)
+                .description("Keys currently in the cooldown period")
+                .register(registry);
+    }
+
+    /**
+     * @return инцидент для рассылки или {@code null}, если ключ ещё охлаждается
+     */
+    public Incident admit(Incident incident) {
+        if (ttl.isZero() || ttl.isNegative()) {
+            return incident;
+        }
+        Instant now = clock.instant();
+        List<Incident> updates = new ArrayList<>();
+        synchronized (open) {
+            Entry entry = open.get(incident.correlationKey());
+            if (entry != null && now.isBefore(entry.expiresAt)) {
+                entry.followUp(incident);
+                suppressed.increment();
+                return null;
+            }
+            open.remove(incident.correlationKey());
+            if (entry != null && entry.hasUpdate()) {
+                updates.add(entry.update());
+            }
+            open.put(incident.correlationKey(), new Entry(incident, now.plus(ttl)));
+            Iterator<Entry> it = open.values().iterator();
+            while (open.size() > maxKeys) {
+                Entry eldest = it.next();
+                it.remove();
+                if (eldest.hasUpdate()) {
+                    updates.add(eldest.update());
+                }
+            }
+        }
+        updates.forEach(gateway::publish);
+        return incident;
+    }
+
+    /**
+     * Закрывает истёкшие периоды и отправляет накопленные за них обновления.
+     */
+    @Scheduled(fixedDelayString = "${detector.cooldown.flush-interval:PT1S}")
+    public void flushExpired() {
+        Instant now = clock.instant();
+        List<Incident> updates = new ArrayList<>();
+        synchronized (open) {
+            Iterator<Map.Entry<String, Entry>> it = open.entrySet().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next().getValue();
+                if (now.isBefore(entry.expiresAt)) {
+                    break;
+                }
+                it.remove();
+                if (entry.hasUpdate()) {
+                    updates.add(entry.update());
+                }
+            }
+        }
+        updates.forEach(gateway::publish);
+    }
+
+    private int openKeys() {
+        synchronized (open) {
+            return open.size();
+        }
+    }
+
+    private static final class Entry {
+        private final Instant expiresAt;
+
+        /**
+         * Открывший период инцидент вместе со всеми слитыми в него повторами.
+         */
+        private Incident merged;
+
+        private boolean hasFollowUps;
+
+        Entry(Incident opened, Instant expiresAt) {
+            this.merged = opened;
+            this.expiresAt = expiresAt;
+        }
+
+        void followUp(Incident incident) {
+            merged = merged.mergedWith(incident);
+            hasFollowUps = true;
+        }
+
+        boolean hasUpdate() {
+            return hasFollowUps;
+        }
+
+        Incident update() {
+            return merged.withRevision(merged.revision() + 1);
+        }
+    }
+}
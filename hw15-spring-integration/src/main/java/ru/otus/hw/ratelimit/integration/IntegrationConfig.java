@@ -1,24 +1,36 @@
 package ru.otus.hw.ratelimit.integration;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.integration.context.IntegrationContextUtils;
 import org.springframework.integration.dsl.IntegrationFlow;
+import org.springframework.integration.dsl.WireTapSpec;
 import org.springframework.integration.handler.LoggingHandler;
 import org.springframework.integration.store.MessageGroupStore;
-import org.springframework.integration.store.SimpleMessageStore;
+import org.springframework.messaging.Message;
 import ru.otus.hw.ratelimit.config.DetectorProperties;
+import ru.otus.hw.ratelimit.domain.Incident;
 import ru.otus.hw.ratelimit.domain.LogEvent;
+import ru.otus.hw.ratelimit.integration.store.ShardedMessageGroupStore;
+import ru.otus.hw.ratelimit.integration.window.SlidingWindowCounters;
+import ru.otus.hw.ratelimit.notify.AsyncNotifierHandler;
 import ru.otus.hw.ratelimit.notify.EmailNotifier;
 import ru.otus.hw.ratelimit.notify.JiraNotifier;
 import ru.otus.hw.ratelimit.notify.TelegramNotifier;
 
 import java.time.Clock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Configuration
 public class IntegrationConfig {
 
-    public static final String HDR_CORR = "correlationKey";
+    private static final String FLOW_LOG_CATEGORY = "ru.otus.hw.ratelimit.flow";
+
+    private static final Logger FLOW_LOG = LoggerFactory.getLogger(FLOW_LOG_CATEGORY);
 
     @Bean
     Clock clock() {
@@ -26,39 +38,63 @@ public class IntegrationConfig {
     }
 
     @Bean
-    MessageGroupStore messageGroupStore() {
-        return new SimpleMessageStore();
+    ShardedMessageGroupStore messageGroupStore(DetectorProperties props) {
+        var store = props.store();
+        return new ShardedMessageGroupStore(store.shards(), store.maxMessages(), store.idleTimeout());
     }
 
     @Bean
     IntegrationFlow detectionFlow(CorrelationKeyResolver keyResolver,
+                                  StatusFilter statusFilter,
                                   DetectorProperties props,
                                   IncidentFactory incidentFactory,
                                   MessageGroupStore store,
-                                  Clock clock
+                                  SlidingWindowCounters windows,
+                                  IncidentCooldown cooldown
     ) {
         return flow -> flow
-                .enrichHeaders(spec -> spec.headerFunction(
-                        HDR_CORR,
-                        message -> keyResolver.resolve((LogEvent) message.getPayload()))
-                )
-                .log(LoggingHandler.Level.DEBUG,
-                        m -> "LogEvent in [" + m.getHeaders().get(HDR_CORR) + "]: " + m.getPayload())
-                .<LogEvent>filter(event -> event.status() == 429 || event.status() >= 500)
+                .filter(LogEvent.class, statusFilter)
+                .wireTap(debugLog(m -> "LogEvent in: " + m.getPayload()), whenDebugEnabled())
                 .aggregate(a -> a
                         .messageStore(store)
-                        .correlationStrategy(message -> message.getHeaders().get(HDR_CORR))
-                        .releaseStrategy(new SlidingWindowReleaseStrategy(props, clock))
-                        .groupTimeout(props.window().toMillis())
+                        .correlationStrategy(new WindowCorrelationStrategy(keyResolver, windows))
+                        .releaseStrategy(new SlidingWindowReleaseStrategy(windows))
+                        .groupTimeout(props.longestWindow().toMillis())
                         .expireGroupsUponCompletion(true)
                         .expireGroupsUponTimeout(true)
                         .sendPartialResultOnExpiry(false)
+                        .discardChannel("windowEvictionFlow.input")
                         .outputProcessor(incidentFactory::fromGroup)
                 )
-                .log(LoggingHandler.Level.DEBUG, message -> "Incident out: " + message.getPayload())
+                .handle(Incident.class, (incident, headers) -> cooldown.admit(incident))
+                .wireTap(debugLog(m -> "Incident out: " + m.getPayload()), whenDebugEnabled())
                 .channel("notifyRouter.input");
     }
 
+    /**
+     * Отладочный лог в отдельной ветке wire-tap: пока DEBUG для {@link #FLOW_LOG_CATEGORY} выключен,
+     * селектор не пропускает сообщение в ветку, и лямбда со строкой даже не вызывается.
+     */
+    private static IntegrationFlow debugLog(Function<Message<Object>, Object> logExpression) {
+        return f -> f.log(LoggingHandler.Level.DEBUG, FLOW_LOG_CATEGORY, logExpression);
+    }
+
+    private static Consumer<WireTapSpec> whenDebugEnabled() {
+        return wireTap -> wireTap.selector(message -> FLOW_LOG.isDebugEnabled());
+    }
+
+    @Bean
+    IntegrationFlow batchIngestFlow() {
+        return f -> f
+                .splitWith(s -> s.applySequence(false))
+                .channel("detectionFlow.input");
+    }
+
+    @Bean
+    IntegrationFlow windowEvictionFlow(CorrelationKeyResolver keyResolver, SlidingWindowCounters windows) {
+        return f -> f.handle(message -> windows.evict(keyResolver.resolve((LogEvent) message.getPayload())));
+    }
+
     @Bean
     IntegrationFlow errorFlow() {
         return IntegrationFlow
@@ -78,18 +114,34 @@ public class IntegrationConfig {
     }
 
     @Bean
-    IntegrationFlow telegramFlow(TelegramNotifier h) {
-        return f -> f.handle(h, "notify");
+    AsyncNotifierHandler telegramHandler(TelegramNotifier notifier, DetectorProperties props,
+                                         MeterRegistry registry) {
+        return new AsyncNotifierHandler("telegram", notifier, props.notification(), registry);
+    }
+
+    @Bean
+    AsyncNotifierHandler emailHandler(EmailNotifier notifier, DetectorProperties props, MeterRegistry registry) {
+        return new AsyncNotifierHandler("email", notifier, props.notification(), registry);
+    }
+
+    @Bean
+    AsyncNotifierHandler jiraHandler(JiraNotifier notifier, DetectorProperties props, MeterRegistry registry) {
+        return new AsyncNotifierHandler("jira", notifier, props.notification(), registry);
+    }
+
+    @Bean
+    IntegrationFlow telegramFlow(AsyncNotifierHandler telegramHandler) {
+        return f -> f.handle(telegramHandler);
     }
 
     @Bean
-    IntegrationFlow emailFlow(EmailNotifier h) {
-        return f -> f.handle(h, "notify");
+    IntegrationFlow emailFlow(AsyncNotifierHandler emailHandler) {
+        return f -> f.handle(emailHandler);
     }
 
     @Bean
-    IntegrationFlow jiraFlow(JiraNotifier h) {
-        return f -> f.handle(h, "notify");
+    IntegrationFlow jiraFlow(AsyncNotifierHandler jiraHandler) {
+        return f -> f.handle(jiraHandler);
     }
 
 }
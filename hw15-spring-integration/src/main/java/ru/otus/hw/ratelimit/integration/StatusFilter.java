@@ -0,0 +1,62 @@
+package ru.otus.hw.ratelimit.integration;
+
+import org.springframework.integration.core.GenericSelector;
+import org.springframework.stereotype.Component;
+import ru.otus.hw.ratelimit.config.DetectorProperties;
+import ru.otus.hw.ratelimit.domain.LogEvent;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Отбор «проблемных» статусов по заранее посчитанному битсету над 100..599.
+ * Статусы задаются в {@code detector.statuses} как отдельные коды или диапазоны: {@code 429}, {@code 500-599}.
+ */
+@Component
+public class StatusFilter implements GenericSelector<LogEvent> {
+    static final int MIN_STATUS = 100;
+
+    static final int MAX_STATUS = 599;
+
+    private final BitSet statuses;
+
+    public StatusFilter(DetectorProperties props) {
+        this.statuses = parse(props.statuses());
+    }
+
+    @Override
+    public boolean accept(LogEvent event) {
+        return matches(event.status());
+    }
+
+    public boolean matches(int status) {
+        return status >= MIN_STATUS && status <= MAX_STATUS && statuses.get(status - MIN_STATUS);
+    }
+
+    static BitSet parse(List<String> specs) {
+        BitSet bits = new BitSet(MAX_STATUS - MIN_STATUS + 1);
+        for (String spec : specs) {
+            String[] bounds = spec.trim().split("-", 2);
+            int from = parseStatus(bounds[0], spec);
+            int to = bounds.length == 2 ? parseStatus(bounds[1], spec) : from;
+            if (from > to) {
+                throw new IllegalArgumentException("Invalid status range: " + spec);
+            }
+            bits.set(from - MIN_STATUS, to - MIN_STATUS + 1);
+        }
+        return bits;
+    }
+
+    private static int parseStatus(String value, String spec) {
+        int status;
+        try {
+            status = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid status spec: " + spec, e);
+        }
+        if (status < MIN_STATUS || status > MAX_STATUS) {
+            throw new IllegalArgumentException("Status out of range " + MIN_STATUS + ".." + MAX_STATUS + ": " + spec);
+        }
+        return status;
+    }
+}
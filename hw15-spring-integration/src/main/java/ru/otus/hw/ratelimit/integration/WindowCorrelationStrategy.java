@@ -0,0 +1,26 @@
+package ru.otus.hw.ratelimit.integration;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.integration.aggregator.CorrelationStrategy;
+import org.springframework.messaging.Message;
+import ru.otus.hw.ratelimit.domain.LogEvent;
+import ru.otus.hw.ratelimit.integration.window.SlidingWindowCounters;
+
+/**
+ * Вычисляет ключ прямо из payload (без копирования сообщения ради заголовка)
+ * и тут же учитывает событие в счётчиках окна — агрегатор зовёт стратегию ровно один раз на сообщение.
+ */
+@RequiredArgsConstructor
+public class WindowCorrelationStrategy implements CorrelationStrategy {
+    private final CorrelationKeyResolver keyResolver;
+
+    private final SlidingWindowCounters windows;
+
+    @Override
+    public Object getCorrelationKey(Message<?> message) {
+        LogEvent event = (LogEvent) message.getPayload();
+        Object key = keyResolver.resolve(event);
+        windows.record(key, event);
+        return key;
+    }
+}
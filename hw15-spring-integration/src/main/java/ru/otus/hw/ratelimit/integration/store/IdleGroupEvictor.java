@@ -0,0 +1,16 @@
+package ru.otus.hw.ratelimit.integration.store;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class IdleGroupEvictor {
+    private final ShardedMessageGroupStore store;
+
+    @Scheduled(fixedDelayString = "${detector.store.eviction-interval:PT30S}")
+    public void evictIdleGroups() {
+        store.evictIdleGroups();
+    }
+}
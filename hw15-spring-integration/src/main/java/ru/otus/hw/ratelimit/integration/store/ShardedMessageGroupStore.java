@@ -0,0 +1,193 @@
+package ru.otus.hw.ratelimit.integration.store;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.integration.store.AbstractMessageGroupStore;
+import org.springframework.integration.store.MessageGroup;
+import org.springframework.integration.store.SimpleMessageStore;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link org.springframework.integration.store.MessageGroupStore}, разбитый на шарды по ключу корреляции.
+ * Каждый шард — отдельный {@link SimpleMessageStore} со своим реестром блокировок,
+ * поэтому группы разных клиентов не делят ни карты, ни локи.
+ * Общее число сообщений ограничено {@code maxMessages}: при переполнении сначала выселяются
+ * простаивающие группы (через expiry-колбэки агрегатора), и только потом запись отклоняется.
+ */
+@Slf4j
+public class ShardedMessageGroupStore extends AbstractMessageGroupStore {
+
+    private final SimpleMessageStore[] shards;
+
+    private final int maxMessages;
+
+    private final long idleTimeoutMillis;
+
+    private final AtomicInteger messageCount = new AtomicInteger();
+
+    public ShardedMessageGroupStore(int shards, int maxMessages, Duration idleTimeout) {
+        this.shards = new SimpleMessageStore[Math.max(1, shards)];
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new SimpleMessageStore();
+        }
+        this.maxMessages = maxMessages;
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        setTimeoutOnIdle(true);
+    }
+
+    /**
+     * Выселяет группы, в которые ничего не приходило дольше {@code idleTimeout}.
+     * @return количество выселенных групп
+     */
+    public int evictIdleGroups() {
+        int evicted = expireMessageGroups(idleTimeoutMillis);
+        if (evicted > 0) {
+            log.debug("Evicted {} idle message groups, {} messages left", evicted, messageCount.get());
+        }
+        return evicted;
+    }
+
+    @Override
+    protected void doAddMessagesToGroup(Object groupId, Message<?>... messages) {
+        reserve(messages.length);
+        SimpleMessageStore shard = shard(groupId);
+        int added = 0;
+        try {
+            int before = shard.messageGroupSize(groupId);
+            shard.addMessagesToGroup(groupId, messages);
+            added = shard.messageGroupSize(groupId) - before;
+        } finally {
+            messageCount.addAndGet(added - messages.length);
+        }
+    }
+
+    @Override
+    public MessageGroup getMessageGroup(Object groupId) {
+        return shard(groupId).getMessageGroup(groupId);
+    }
+
+    @Override
+    protected void doRemoveMessageGroup(Object groupId) {
+        SimpleMessageStore shard = shard(groupId);
+        int before = shard.messageGroupSize(groupId);
+        shard.removeMessageGroup(groupId);
+        messageCount.addAndGet(-before);
+    }
+
+    @Override
+    protected void doRemoveMessagesFromGroup(Object groupId, Collection<Message<?>> messages) {
+        SimpleMessageStore shard = shard(groupId);
+        int before = shard.messageGroupSize(groupId);
+        shard.removeMessagesFromGroup(groupId, messages);
+        messageCount.addAndGet(shard.messageGroupSize(groupId) - before);
+    }
+
+    @Override
+    protected Message<?> doPollMessageFromGroup(Object groupId) {
+        Message<?> message = shard(groupId).pollMessageFromGroup(groupId);
+        if (message != null) {
+            messageCount.decrementAndGet();
+        }
+        return message;
+    }
+
+    @Override
+    protected boolean doRemoveMessageFromGroupById(Object groupId, UUID messageId) {
+        boolean removed = shard(groupId).removeMessageFromGroupById(groupId, messageId);
+        if (removed) {
+            messageCount.decrementAndGet();
+        }
+        return removed;
+    }
+
+    @Override
+    protected void doSetLastReleasedSequenceNumberForGroup(Object groupId, int sequenceNumber) {
+        shard(groupId).setLastReleasedSequenceNumberForGroup(groupId, sequenceNumber);
+    }
+
+    @Override
+    protected void doCompleteGroup(Object groupId) {
+        shard(groupId).completeGroup(groupId);
+    }
+
+    @Override
+    protected void doSetGroupCondition(Object groupId, String condition) {
+        shard(groupId).setGroupCondition(groupId, condition);
+    }
+
+    @Override
+    public Message<?> getOneMessageFromGroup(Object groupId) {
+        return shard(groupId).getOneMessageFromGroup(groupId);
+    }
+
+    @Override
+    public Collection<Message<?>> getMessagesForGroup(Object groupId) {
+        return shard(groupId).getMessagesForGroup(groupId);
+    }
+
+    @Override
+    public Stream<Message<?>> streamMessagesForGroup(Object groupId) {
+        return shard(groupId).streamMessagesForGroup(groupId);
+    }
+
+    @Override
+    public int messageGroupSize(Object groupId) {
+        return shard(groupId).messageGroupSize(groupId);
+    }
+
+    @Override
+    public int getMessageCountForAllMessageGroups() {
+        return messageCount.get();
+    }
+
+    @Override
+    public int getMessageGroupCount() {
+        return Arrays.stream(shards).mapToInt(SimpleMessageStore::getMessageGroupCount).sum();
+    }
+
+    @Override
+    public Iterator<MessageGroup> iterator() {
+        return Arrays.stream(shards)
+                .flatMap(shard -> StreamSupport.stream(shard.spliterator(), false))
+                .iterator();
+    }
+
+    /**
+     * Резервирует место под сообщения до записи в шард, чтобы параллельные записи в разные шарды
+     * не превысили {@code maxMessages} вместе; после записи резерв сверяется с реальным приростом.
+     */
+    private void reserve(int incoming) {
+        if (tryReserve(incoming)) {
+            return;
+        }
+        evictIdleGroups();
+        if (!tryReserve(incoming)) {
+            throw new MessagingException("ShardedMessageGroupStore was out of capacity (" + maxMessages + ")");
+        }
+    }
+
+    private boolean tryReserve(int incoming) {
+        int current;
+        do {
+            current = messageCount.get();
+            if (current + incoming > maxMessages) {
+                return false;
+            }
+        } while (!messageCount.compareAndSet(current, current + incoming));
+        return true;
+    }
+
+    private SimpleMessageStore shard(Object groupId) {
+        int h = groupId.hashCode();
+        return shards[Math.floorMod(h ^ (h >>> 16), shards.length)];
+    }
+}
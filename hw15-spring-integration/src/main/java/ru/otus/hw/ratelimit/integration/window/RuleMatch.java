@@ -0,0 +1,9 @@
+package ru.otus.hw.ratelimit.integration.window;
+
+import ru.otus.hw.ratelimit.config.DetectorProperties.Rule;
+
+public record RuleMatch(
+        Rule rule,
+        WindowSnapshot window
+) {
+}
@@ -0,0 +1,169 @@
+package ru.otus.hw.ratelimit.integration.window;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.otus.hw.ratelimit.config.DetectorProperties;
+import ru.otus.hw.ratelimit.config.DetectorProperties.Rule;
+import ru.otus.hw.ratelimit.domain.LogEvent;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Инкрементальные счётчики скользящего окна по ключу корреляции.
+ * Событие учитывается один раз при входе в агрегатор, дальше release strategy и сборка инцидента
+ * читают готовые итоги вместо прохода по всем сообщениям группы.
+ * Все правила из {@link DetectorProperties#effectiveRules()} считаются по одному кольцу бакетов на ключ.
+ */
+@Component
+public class SlidingWindowCounters {
+
+    private final ConcurrentMap<Object, WindowBuckets> windows = new ConcurrentHashMap<>();
+
+    private final Clock clock;
+
+    private final List<Rule> rules;
+
+    private final long bucketMillis;
+
+    public SlidingWindowCounters(DetectorProperties props, Clock clock) {
+        this.clock = clock;
+        this.rules = props.effectiveRules();
+        long shortestWindow = rules.stream().mapToLong(rule -> rule.window().toMillis()).min().orElseThrow();
+        this.bucketMillis = Math.max(1, Math.min(props.resolution().toMillis(), shortestWindow));
+    }
+
+    public void record(Object key, LogEvent event) {
+        windows.compute(key, (k, buckets) -> {
+            var target = buckets != null ? buckets : new WindowBuckets(rules, bucketMillis);
+            target.record(event, clock.instant());
+            return target;
+        });
+    }
+
+    public boolean isTriggered(Object key) {
+        WindowBuckets buckets = windows.get(key);
+        return buckets != null && buckets.isTriggered(clock.instant());
+    }
+
+    /**
+     * Снимок по самому длинному окну.
+     */
+    public WindowSnapshot snapshot(Object key) {
+        WindowBuckets buckets = windows.get(key);
+        return buckets == null ? WindowSnapshot.EMPTY : buckets.snapshot(clock.instant());
+    }
+
+    /**
+     * Забирает итоги сработавшего правила и сбрасывает его счётчик — следующий инцидент по этому правилу
+     * будет собран только из новых событий. Если после этого ни одно правило ничего не копит, ключ выселяется.
+     */
+    public RuleMatch fire(Object key) {
+        RuleMatch[] match = {new RuleMatch(rules.get(0), WindowSnapshot.EMPTY)};
+        windows.computeIfPresent(key, (k, buckets) -> {
+            Instant now = clock.instant();
+            match[0] = buckets.fire(now);
+            return buckets.isIdle(now) ? null : buckets;
+        });
+        return match[0];
+    }
+
+    public void evict(Object key) {
+        windows.remove(key);
+    }
+
+    /**
+     * Выселяет ключи, по которым все правила опустели: сработавший и затихший ключ
+     * иначе держал бы кольцо бакетов и попадал в каждый срез.
+     * @return количество выселенных ключей
+     */
+    @Scheduled(fixedDelayString = "${detector.store.eviction-interval:PT30S}")
+    public int evictIdle() {
+        Instant now = clock.instant();
+        int evicted = 0;
+        for (Object key : windows.keySet()) {
+            if (windows.computeIfPresent(key, (k, buckets) -> buckets.isIdle(now) ? null : buckets) == null) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    int size() {
+        return windows.size();
+    }
+
+    /**
+     * Пишет состояние всех ключей: заголовок с параметрами правил, затем ключ (UUID) и его бакеты.
+     * @return количество записанных ключей
+     */
+    public int writeTo(DataOutput out) throws IOException {
+        writeHeader(out);
+        List<Map.Entry<Object, WindowBuckets>> entries = windows.entrySet().stream()
+                .filter(entry -> entry.getKey() instanceof UUID)
+                .toList();
+        out.writeInt(entries.size());
+        for (var entry : entries) {
+            UUID key = (UUID) entry.getKey();
+            out.writeLong(key.getMostSignificantBits());
+            out.writeLong(key.getLeastSignificantBits());
+            entry.getValue().writeTo(out);
+        }
+        return entries.size();
+    }
+
+    /**
+     * Восстанавливает ключи из среза. Если срез снят с другими правилами или шириной бакета,
+     * он не применяется: пересчитать такие счётчики корректно нельзя. Ключи, окна которых
+     * к текущему моменту уже истекли, пропускаются: группы агрегатора у них нет, и выселить их было бы некому.
+     * @return количество восстановленных ключей
+     */
+    public int readFrom(DataInput in) throws IOException {
+        if (!headerMatches(in)) {
+            return 0;
+        }
+        Instant now = clock.instant();
+        int keys = in.readInt();
+        int restored = 0;
+        for (int i = 0; i < keys; i++) {
+            UUID key = new UUID(in.readLong(), in.readLong());
+            WindowBuckets buckets = WindowBuckets.readFrom(in, rules, bucketMillis);
+            if (!buckets.isIdle(now)) {
+                windows.put(key, buckets);
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    private void writeHeader(DataOutput out) throws IOException {
+        out.writeLong(bucketMillis);
+        out.writeInt(rules.size());
+        for (Rule rule : rules) {
+            out.writeInt(rule.threshold());
+            out.writeLong(rule.window().toMillis());
+        }
+    }
+
+    private boolean headerMatches(DataInput in) throws IOException {
+        boolean matches = in.readLong() == bucketMillis;
+        int size = in.readInt();
+        matches &= size == rules.size();
+        for (int r = 0; r < size; r++) {
+            int threshold = in.readInt();
+            long window = in.readLong();
+            matches &= r < rules.size()
+                    && rules.get(r).threshold() == threshold
+                    && rules.get(r).window().toMillis() == window;
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,335 @@
+package ru.otus.hw.ratelimit.integration.window;
+
+import ru.otus.hw.ratelimit.config.DetectorProperties.Rule;
+import ru.otus.hw.ratelimit.domain.LogEvent;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Кольцо бакетов шириной {@code bucketMillis} для одного ключа корреляции, общее для всех правил.
+ * Кольцо покрывает самое длинное окно, а каждое правило держит только свой счётчик и свою нижнюю границу,
+ * поэтому новое правило стоит один int на ключ, а не отдельную копию событий.
+ * Бакет считается попавшим в окно, если его начало не раньше {@code now - window},
+ * т.е. погрешность не больше одного бакета.
+ */
+final class WindowBuckets {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final List<Rule> rules;
+
+    private final long bucketMillis;
+
+    private final long longestWindowMillis;
+
+    private final long[] ruleWindowMillis;
+
+    private final int[] ruleThresholds;
+
+    private final long[] ruleOldestEpoch;
+
+    private final int[] ruleTotals;
+
+    /**
+     * Бакет, с которого правило начинает после срабатывания, уже учтён в инциденте: копия его содержимого
+     * на момент срабатывания вычитается из итогов правила, а события, пришедшие в этот бакет позже, считаются.
+     */
+    private final Bucket[] ruleConsumed;
+
+    private final Bucket[] ring;
+
+    private long oldestEpoch = EMPTY;
+
+    WindowBuckets(List<Rule> rules, long bucketMillis) {
+        this.rules = List.copyOf(rules);
+        this.bucketMillis = bucketMillis;
+        this.ruleWindowMillis = rules.stream().mapToLong(rule -> rule.window().toMillis()).toArray();
+        this.ruleThresholds = rules.stream().mapToInt(Rule::threshold).toArray();
+        this.ruleOldestEpoch = new long[rules.size()];
+        this.ruleTotals = new int[rules.size()];
+        this.ruleConsumed = new Bucket[rules.size()];
+        this.longestWindowMillis = Arrays.stream(ruleWindowMillis).max().orElseThrow();
+        this.ring = new Bucket[(int) ((longestWindowMillis + bucketMillis - 1) / bucketMillis) + 1];
+    }
+
+    synchronized void record(LogEvent event, Instant now) {
+        advance(now);
+        long nowEpoch = Math.floorDiv(now.toEpochMilli(), bucketMillis);
+        // события «из будущего» кладём в текущий бакет, иначе они затрут ещё живые бакеты кольца
+        long epoch = Math.min(Math.floorDiv(event.timestamp().toEpochMilli(), bucketMillis), nowEpoch);
+        if (epoch < oldestEpoch) {
+            return;
+        }
+        int slot = slot(epoch);
+        Bucket bucket = ring[slot];
+        if (bucket == null) {
+            bucket = new Bucket();
+            ring[slot] = bucket;
+        } else if (bucket.epoch != epoch) {
+            bucket.clear();
+        }
+        bucket.epoch = epoch;
+        bucket.add(event.route(), event.status());
+        for (int r = 0; r < ruleTotals.length; r++) {
+            if (epoch >= ruleOldestEpoch[r]) {
+                ruleTotals[r]++;
+            }
+        }
+    }
+
+    synchronized boolean isTriggered(Instant now) {
+        advance(now);
+        return firstTriggered() >= 0;
+    }
+
+    /**
+     * Отдаёт срез окна первого сработавшего правила и обнуляет это правило:
+     * уже учтённые события ему больше не засчитываются, остальные правила продолжают копить.
+     * Если ни одно правило не сработало, возвращает срез первого правила без сброса.
+     */
+    synchronized RuleMatch fire(Instant now) {
+        advance(now);
+        int r = firstTriggered();
+        if (r < 0) {
+            return new RuleMatch(rules.get(0), snapshotFrom(ruleOldestEpoch[0], ruleConsumed[0]));
+        }
+        WindowSnapshot snapshot = snapshotFrom(ruleOldestEpoch[r], ruleConsumed[r]);
+        long nowEpoch = Math.floorDiv(now.toEpochMilli(), bucketMillis);
+        Bucket current = ring[slot(nowEpoch)];
+        ruleTotals[r] = 0;
+        ruleOldestEpoch[r] = Math.max(ruleOldestEpoch[r], nowEpoch);
+        ruleConsumed[r] = current != null && current.epoch == nowEpoch ? current.copy() : null;
+        return new RuleMatch(rules.get(r), snapshot);
+    }
+
+    synchronized WindowSnapshot snapshot(Instant now) {
+        advance(now);
+        return snapshotFrom(oldestEpoch, null);
+    }
+
+    /**
+     * Ни одно правило ничего не копит: ключ можно выселить без потери состояния.
+     */
+    synchronized boolean isIdle(Instant now) {
+        advance(now);
+        for (int total : ruleTotals) {
+            if (total > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Бинарный срез состояния: границы правил, их счётчики и только непустые бакеты.
+     */
+    synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeLong(oldestEpoch);
+        for (int r = 0; r < ruleTotals.length; r++) {
+            out.writeLong(ruleOldestEpoch[r]);
+            out.writeInt(ruleTotals[r]);
+            out.writeBoolean(ruleConsumed[r] != null);
+            if (ruleConsumed[r] != null) {
+                ruleConsumed[r].writeTo(out);
+            }
+        }
+        int live = 0;
+        for (Bucket bucket : ring) {
+            if (bucket != null && bucket.epoch != EMPTY) {
+                live++;
+            }
+        }
+        out.writeInt(live);
+        for (Bucket bucket : ring) {
+            if (bucket != null && bucket.epoch != EMPTY) {
+                bucket.writeTo(out);
+            }
+        }
+    }
+
+    static WindowBuckets readFrom(DataInput in, List<Rule> rules, long bucketMillis) throws IOException {
+        WindowBuckets buckets = new WindowBuckets(rules, bucketMillis);
+        buckets.oldestEpoch = in.readLong();
+        for (int r = 0; r < rules.size(); r++) {
+            buckets.ruleOldestEpoch[r] = in.readLong();
+            buckets.ruleTotals[r] = in.readInt();
+            buckets.ruleConsumed[r] = in.readBoolean() ? Bucket.readFrom(in) : null;
+        }
+        int live = in.readInt();
+        for (int i = 0; i < live; i++) {
+            Bucket bucket = Bucket.readFrom(in);
+            buckets.ring[buckets.slot(bucket.epoch)] = bucket;
+        }
+        return buckets;
+    }
+
+    private int firstTriggered() {
+        for (int r = 0; r < ruleTotals.length; r++) {
+            if (ruleTotals[r] >= ruleThresholds[r]) {
+                return r;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Маршруты и гистограмма собираются по бакетам только при построении инцидента,
+     * на горячем пути обновляются лишь счётчики правил.
+     */
+    private WindowSnapshot snapshotFrom(long fromEpoch, Bucket consumed) {
+        int count = 0;
+        Map<String, Integer> routes = new HashMap<>();
+        Map<Integer, Long> statuses = new HashMap<>();
+        for (Bucket bucket : ring) {
+            if (bucket == null || bucket.epoch == EMPTY || bucket.epoch < fromEpoch) {
+                continue;
+            }
+            count += bucket.count;
+            bucket.routes.forEach((route, n) -> routes.merge(route, n, Integer::sum));
+            bucket.statuses.forEach((status, n) -> statuses.merge(status, n, Long::sum));
+        }
+        if (consumed != null && consumed.epoch >= fromEpoch) {
+            count -= consumed.count;
+            consumed.routes.forEach((route, n) -> routes.merge(route, -n, Integer::sum));
+            consumed.statuses.forEach((status, n) -> statuses.merge(status, -n, Long::sum));
+            routes.values().removeIf(n -> n <= 0);
+            statuses.values().removeIf(n -> n <= 0);
+        }
+        if (count <= 0) {
+            return WindowSnapshot.EMPTY;
+        }
+        return new WindowSnapshot(count, Set.copyOf(routes.keySet()), Map.copyOf(statuses));
+    }
+
+    /**
+     * Сдвигает нижние границы правил и кольца. Проходим только по слотам между старой и новой границей,
+     * поэтому амортизированно это O(1) на правило.
+     */
+    private void advance(Instant now) {
+        long nowMillis = now.toEpochMilli();
+        long newOldest = ceilDiv(nowMillis - longestWindowMillis);
+        if (oldestEpoch == EMPTY) {
+            oldestEpoch = newOldest;
+            for (int r = 0; r < ruleOldestEpoch.length; r++) {
+                ruleOldestEpoch[r] = ceilDiv(nowMillis - ruleWindowMillis[r]);
+            }
+            return;
+        }
+        for (int r = 0; r < ruleOldestEpoch.length; r++) {
+            long ruleOldest = ceilDiv(nowMillis - ruleWindowMillis[r]);
+            if (ruleOldest > ruleOldestEpoch[r]) {
+                ruleTotals[r] -= countBetween(ruleOldestEpoch[r], ruleOldest) - consumedBefore(r, ruleOldest);
+                ruleOldestEpoch[r] = ruleOldest;
+                ruleConsumed[r] = null;
+            }
+        }
+        if (newOldest <= oldestEpoch) {
+            return;
+        }
+        long steps = Math.min(newOldest - oldestEpoch, ring.length);
+        for (long i = 0; i < steps; i++) {
+            Bucket bucket = ring[slot(oldestEpoch + i)];
+            if (bucket != null && bucket.epoch != EMPTY && bucket.epoch < newOldest) {
+                bucket.clear();
+            }
+        }
+        oldestEpoch = newOldest;
+    }
+
+    private int countBetween(long fromEpoch, long toEpoch) {
+        int count = 0;
+        long steps = Math.min(toEpoch - fromEpoch, ring.length);
+        for (long i = 0; i < steps; i++) {
+            Bucket bucket = ring[slot(fromEpoch + i)];
+            if (bucket != null && bucket.epoch >= fromEpoch && bucket.epoch < toEpoch) {
+                count += bucket.count;
+            }
+        }
+        return count;
+    }
+
+    private int consumedBefore(int r, long toEpoch) {
+        Bucket consumed = ruleConsumed[r];
+        return consumed != null && consumed.epoch >= ruleOldestEpoch[r] && consumed.epoch < toEpoch
+                ? consumed.count
+                : 0;
+    }
+
+    private int slot(long epoch) {
+        return (int) Math.floorMod(epoch, (long) ring.length);
+    }
+
+    private long ceilDiv(long millis) {
+        return -Math.floorDiv(-millis, bucketMillis);
+    }
+
+    private static final class Bucket {
+        private long epoch = EMPTY;
+
+        private int count;
+
+        private final Map<String, Integer> routes = new HashMap<>(4);
+
+        private final Map<Integer, Long> statuses = new HashMap<>(4);
+
+        void add(String route, int status) {
+            count++;
+            routes.merge(route, 1, Integer::sum);
+            statuses.merge(status, 1L, Long::sum);
+        }
+
+        void clear() {
+            epoch = EMPTY;
+            count = 0;
+            routes.clear();
+            statuses.clear();
+        }
+
+        Bucket copy() {
+            Bucket copy = new Bucket();
+            copy.epoch = epoch;
+            copy.count = count;
+            copy.routes.putAll(routes);
+            copy.statuses.putAll(statuses);
+            return copy;
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeLong(epoch);
+            out.writeInt(count);
+            out.writeInt(routes.size());
+            for (var route : routes.entrySet()) {
+                out.writeUTF(route.getKey());
+                out.writeInt(route.getValue());
+            }
+            out.writeInt(statuses.size());
+            for (var status : statuses.entrySet()) {
+                out.writeShort(status.getKey());
+                out.writeLong(status.getValue());
+            }
+        }
+
+        static Bucket readFrom(DataInput in) throws IOException {
+            Bucket bucket = new Bucket();
+            bucket.epoch = in.readLong();
+            bucket.count = in.readInt();
+            int routes = in.readInt();
+            for (int j = 0; j < routes; j++) {
+                bucket.routes.put(in.readUTF(), in.readInt());
+            }
+            int statuses = in.readInt();
+            for (int j = 0; j < statuses; j++) {
+                bucket.statuses.put((int) in.readShort(), in.readLong());
+            }
+            return bucket;
+        }
+    }
+}
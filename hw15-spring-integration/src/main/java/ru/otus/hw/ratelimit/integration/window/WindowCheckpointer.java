@@ -0,0 +1,103 @@
+package ru.otus.hw.ratelimit.integration.window;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.otus.hw.ratelimit.config.DetectorProperties;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+
+/**
+ * Периодически сохраняет счётчики {@link SlidingWindowCounters} в локальный файл и поднимает их при старте,
+ * чтобы рестарт не обнулял уже накопленные окна. Пишутся только итоги бакетов, а не сообщения агрегатора:
+ * после восстановления группа заводится заново первым же событием ключа.
+ * Файл пишется во временный и атомарно подменяется, так что оборванная запись не портит прошлый срез.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "detector.snapshot", name = "enabled", havingValue = "true")
+public class WindowCheckpointer implements InitializingBean, DisposableBean {
+
+    // "RLW" + версия формата
+    private static final int MAGIC = 0x524C5702;
+
+    private final SlidingWindowCounters windows;
+
+    private final Path path;
+
+    private final long maxAgeMillis;
+
+    private final Clock clock;
+
+    public WindowCheckpointer(SlidingWindowCounters windows, DetectorProperties props, Clock clock) {
+        this.windows = windows;
+        this.path = props.snapshot().path();
+        this.maxAgeMillis = props.longestWindow().toMillis();
+        this.clock = clock;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        restore();
+    }
+
+    @Override
+    public void destroy() {
+        save();
+    }
+
+    @Scheduled(fixedDelayString = "${detector.snapshot.interval:PT10S}")
+    public void save() {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            int keys;
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeLong(clock.millis());
+                keys = windows.writeTo(out);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Window snapshot with {} keys written to {}", keys, path);
+        } catch (IOException e) {
+            log.warn("Failed to write window snapshot to {}", path, e);
+        }
+    }
+
+    int restore() {
+        if (!Files.isReadable(path)) {
+            return 0;
+        }
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                log.warn("Window snapshot {} has unknown format, starting with empty windows", path);
+                return 0;
+            }
+            long age = clock.millis() - in.readLong();
+            if (age > maxAgeMillis) {
+                log.info("Window snapshot {} is older than the longest window, skipped", path);
+                return 0;
+            }
+            int keys = windows.readFrom(in);
+            log.info("Restored {} keys from window snapshot {}", keys, path);
+            return keys;
+        } catch (IOException e) {
+            log.warn("Failed to read window snapshot {}, starting with empty windows", path, e);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ru.otus.hw.ratelimit.integration.window;
+
+import java.util.Map;
+import java.util.Set;
+
+public record WindowSnapshot(
+        int count,
+        Set<String> routes,
+        Map<Integer, Long> statusHistogram
+) {
+    public static final WindowSnapshot EMPTY = new WindowSnapshot(0, Set.of(), Map.of());
+}
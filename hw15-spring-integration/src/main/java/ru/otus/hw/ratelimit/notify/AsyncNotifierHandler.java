@@ -0,0 +1,197 @@
+package ru.otus.hw.ratelimit.notify;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import ru.otus.hw.ratelimit.config.DetectorProperties;
+import ru.otus.hw.ratelimit.domain.Incident;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ставит инциденты в ограниченную очередь конкретного {@link Notifier} и сразу возвращает управление,
+ * чтобы медленный нотификатор не держал поток агрегатора. Воркеры вычитывают очередь пачками
+ * до {@code batchSize} и отдают их в {@link Notifier#notifyBatch(List)}.
+ * При переполнении очереди действует {@link OverflowPolicy}.
+ */
+@Slf4j
+public class AsyncNotifierHandler implements MessageHandler, DisposableBean {
+
+    private static final Duration SHUTDOWN_GRACE = Duration.ofSeconds(5);
+
+    private static final long POLL_MILLIS = 100;
+
+    private final String name;
+
+    private final Notifier notifier;
+
+    private final BlockingDeque<Incident> queue;
+
+    private final int batchSize;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final ExecutorService workers;
+
+    private final Timer latency;
+
+    private final Counter dropped;
+
+    private final Counter coalesced;
+
+    private final Duration shutdownGrace;
+
+    private volatile boolean stopping;
+
+    public AsyncNotifierHandler(String name, Notifier notifier, DetectorProperties.Notify props,
+                                MeterRegistry registry) {
+        this(name, notifier, props, registry, new LinkedBlockingDeque<>(props.queueCapacity()), SHUTDOWN_GRACE);
+    }
+
+    AsyncNotifierHandler(String name, Notifier notifier, DetectorProperties.Notify props, MeterRegistry registry,
+                         BlockingDeque<Incident> queue, Duration shutdownGrace) {
+        this.name = name;
+        this.notifier = notifier;
+        this.queue = queue;
+        this.shutdownGrace = shutdownGrace;
+        this.batchSize = Math.max(1, props.batchSize());
+        this.overflowPolicy = props.overflowPolicy();
+
+        Gauge.builder("detector.notify.queue.depth", queue, BlockingDeque::size)
+                .description("Incidents waiting to be sent by the notifier")
+                .tag("notifier", name)
+                .register(registry);
+        this.latency = Timer.builder("detector.notify.latency")
+                .description("Time spent by the notifier on one batch of incidents")
+                .tag("notifier", name)
+                .register(registry);
+        this.dropped = Counter.builder("detector.notify.dropped")
+                .description("Incidents dropped because the notifier queue was full")
+                .tag("notifier", name)
+                .register(registry);
+        this.coalesced = Counter.builder("detector.notify.coalesced")
+                .description("Incidents merged into an already queued incident of the same key")
+                .tag("notifier", name)
+                .register(registry);
+
+        int concurrency = Math.max(1, props.concurrency());
+        this.workers = Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("notify-" + name + "-"));
+        for (int i = 0; i < concurrency; i++) {
+            workers.execute(this::drainLoop);
+        }
+    }
+
+    @Override
+    public void handleMessage(Message<?> message) {
+        enqueue((Incident) message.getPayload());
+    }
+
+    /**
+     * Даёт воркерам дослать очередь в пределах {@code shutdownGrace}; всё, что не ушло, учитывается
+     * как отброшенное.
+     */
+    @Override
+    public void destroy() {
+        stopping = true;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(shutdownGrace.toMillis(), TimeUnit.MILLISECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        List<Incident> left = new ArrayList<>();
+        queue.drainTo(left);
+        if (!left.isEmpty()) {
+            dropped.increment(left.size());
+            log.warn("[{}] Notifier stopped, {} queued incidents dropped", name, left.size());
+        }
+    }
+
+    private void enqueue(Incident incident) {
+        if (queue.offerLast(incident)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP_NEWEST -> drop(incident);
+            case DROP_OLDEST -> replaceOldest(incident);
+            case COALESCE -> {
+                if (!coalesce(incident)) {
+                    replaceOldest(incident);
+                }
+            }
+            default -> throw new IllegalStateException("Unknown overflow policy: " + overflowPolicy);
+        }
+    }
+
+    private boolean coalesce(Incident incident) {
+        for (Incident queued : queue) {
+            if (queued.correlationKey().equals(incident.correlationKey()) && queue.removeFirstOccurrence(queued)) {
+                if (queue.offerLast(queued.coalescedWith(incident))) {
+                    coalesced.increment();
+                    return true;
+                }
+                // освободившееся место занял параллельный enqueue: теряются оба инцидента
+                drop(queued);
+                drop(incident);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void replaceOldest(Incident incident) {
+        Incident oldest = queue.pollFirst();
+        if (oldest != null) {
+            drop(oldest);
+        }
+        if (!queue.offerLast(incident)) {
+            drop(incident);
+        }
+    }
+
+    private void drop(Incident incident) {
+        dropped.increment();
+        log.warn("[{}] Notifier queue is full, incident {} for key {} dropped",
+                name, incident.id(), incident.correlationKey());
+    }
+
+    private void drainLoop() {
+        List<Incident> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Incident first = queue.pollFirst(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (stopping) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                latency.record(() -> notifier.notifyBatch(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("[{}] Notifier failed on {} incidents", name, batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+}
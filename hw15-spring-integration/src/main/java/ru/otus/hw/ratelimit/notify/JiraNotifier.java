@@ -9,6 +9,7 @@ import ru.otus.hw.ratelimit.domain.Incident;
 public class JiraNotifier implements Notifier {
     @Override
     public void notify(Incident inc) {
-        log.info("[JIRA] Create/Update ticket: key={}, histogram={}", inc.correlationKey(), inc.statusHistogram());
+        log.info("[JIRA] {} ticket {}: key={}, histogram={}", inc.isUpdate() ? "Update" : "Create",
+                inc.id(), inc.correlationKey(), inc.statusHistogram());
     }
 }
@@ -2,6 +2,12 @@ package ru.otus.hw.ratelimit.notify;
 
 import ru.otus.hw.ratelimit.domain.Incident;
 
+import java.util.List;
+
 public interface Notifier {
     void notify(Incident incident);
+
+    default void notifyBatch(List<Incident> incidents) {
+        incidents.forEach(this::notify);
+    }
 }
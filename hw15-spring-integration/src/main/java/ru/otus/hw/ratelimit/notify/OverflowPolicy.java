@@ -0,0 +1,7 @@
+package ru.otus.hw.ratelimit.notify;
+
+public enum OverflowPolicy {
+    DROP_NEWEST,
+    DROP_OLDEST,
+    COALESCE
+}
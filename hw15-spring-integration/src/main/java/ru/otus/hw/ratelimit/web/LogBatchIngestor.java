@@ -0,0 +1,99 @@
+package ru.otus.hw.ratelimit.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.otus.hw.ratelimit.config.DetectorProperties;
+import ru.otus.hw.ratelimit.domain.LogEvent;
+import ru.otus.hw.ratelimit.gateway.LogGateway;
+import ru.otus.hw.ratelimit.web.LogController.BatchResult;
+import ru.otus.hw.ratelimit.web.LogController.LogEventDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Clock;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковый разбор пачки событий: Jackson читает значения по одному (корневой массив разворачивается,
+ * NDJSON — это просто последовательность корневых объектов), валидные события копятся в батч
+ * и уходят в детектор одним сообщением на {@code batchSize} штук.
+ */
+@Slf4j
+@Component
+public class LogBatchIngestor {
+
+    private final ObjectReader reader;
+
+    private final Validator validator;
+
+    private final LogGateway gateway;
+
+    private final Clock clock;
+
+    private final int batchSize;
+
+    public LogBatchIngestor(ObjectMapper mapper, Validator validator, LogGateway gateway,
+                            Clock clock, DetectorProperties props) {
+        this.reader = mapper.readerFor(LogEventDto.class);
+        this.validator = validator;
+        this.gateway = gateway;
+        this.clock = clock;
+        this.batchSize = Math.max(1, props.ingest().batchSize());
+    }
+
+    public BatchResult ingest(InputStream body) throws IOException {
+        int accepted = 0;
+        int rejected = 0;
+        List<LogEvent> batch = new ArrayList<>(batchSize);
+        try (MappingIterator<LogEventDto> it = reader.readValues(body)) {
+            while (it.hasNextValue()) {
+                LogEvent event = nextEvent(it);
+                if (event == null) {
+                    rejected++;
+                    continue;
+                }
+                batch.add(event);
+                if (batch.size() == batchSize) {
+                    accepted += flush(batch);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            // битый JSON дальше не читается — считаем хвост одной отбракованной записью
+            log.debug("Batch body is malformed: {}", e.getOriginalMessage());
+            rejected++;
+        }
+        accepted += flush(batch);
+        return new BatchResult(accepted, rejected);
+    }
+
+    private LogEvent nextEvent(MappingIterator<LogEventDto> it) throws IOException {
+        try {
+            LogEventDto dto = it.nextValue();
+            if (dto == null || !validator.validate(dto).isEmpty()) {
+                return null;
+            }
+            return dto.toEvent(clock);
+        } catch (DateTimeParseException | MismatchedInputException e) {
+            // отдельная запись не того вида — MappingIterator сам пересинхронизируется на следующей
+            return null;
+        }
+    }
+
+    private int flush(List<LogEvent> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int size = batch.size();
+        gateway.publishBatch(List.copyOf(batch));
+        batch.clear();
+        return size;
+    }
+}
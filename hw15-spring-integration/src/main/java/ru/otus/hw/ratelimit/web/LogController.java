@@ -6,6 +6,7 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -14,6 +15,8 @@ import org.springframework.web.bind.annotation.RestController;
 import ru.otus.hw.ratelimit.domain.LogEvent;
 import ru.otus.hw.ratelimit.gateway.LogGateway;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Clock;
 import java.time.Instant;
 
@@ -24,6 +27,8 @@ public class LogController {
 
     private final LogGateway gateway;
 
+    private final LogBatchIngestor batchIngestor;
+
     private final Clock clock;
 
     public record LogEventDto(String timestamp,
@@ -31,14 +36,31 @@ public class LogController {
                               @NotBlank String ip,
                               @NotBlank String route,
                               @Min(100) @Max(599) int status) {
+
+        LogEvent toEvent(Clock clock) {
+            var ts = (timestamp == null || timestamp.isBlank())
+                    ? Instant.now(clock)
+                    : Instant.parse(timestamp);
+            return new LogEvent(ts, clientId, ip, route, status);
+        }
+    }
+
+    public record BatchResult(int accepted, int rejected) {
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.ACCEPTED)
     public void accept(@Valid @RequestBody LogEventDto dto) {
-        var ts = (dto.timestamp() == null || dto.timestamp().isBlank())
-                ? Instant.now(clock)
-                : Instant.parse(dto.timestamp());
-        gateway.publish(new LogEvent(ts, dto.clientId(), dto.ip(), dto.route(), dto.status()));
+        gateway.publish(dto.toEvent(clock));
+    }
+
+    /**
+     * Пачка событий: JSON-массив или NDJSON (по объекту на строку).
+     * Тело читается потоково, без буферизации целиком.
+     */
+    @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BatchResult acceptBatch(InputStream body) throws IOException {
+        return batchIngestor.ingest(body);
     }
 }
@@ -1,9 +1,11 @@
 package ru.otus.hw.ratelimit;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
@@ -43,6 +45,17 @@ class DetectionIpRouteModeTest {
     @MockitoSpyBean
     private LogGateway gateway;
 
+    /**
+     * Рассылка асинхронная: ждём, пока email и jira получат всё, что уже получил telegram,
+     * иначе запоздавший вызов попадёт в проверки следующего теста.
+     */
+    @AfterEach
+    void awaitFanOut() {
+        int sent = notifyCalls(telegram);
+        verify(email, timeout(VERIFICATION_TIMEOUT_MS).times(sent)).notify(any(Incident.class));
+        verify(jira, timeout(VERIFICATION_TIMEOUT_MS).times(sent)).notify(any(Incident.class));
+    }
+
     @Nested
     @DisplayName("Incident triggering by IP and Route")
     class IncidentTriggeringByIpRoute {
@@ -183,6 +196,12 @@ class DetectionIpRouteModeTest {
         }
     }
 
+    private static int notifyCalls(Object notifier) {
+        return (int) Mockito.mockingDetails(notifier).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("notify"))
+                .count();
+    }
+
     private LogEvent createLogEvent(String timestamp, String clientId, String ip, String route, int status) {
         return new LogEvent(Instant.parse(timestamp), clientId, ip, route, status);
     }
@@ -0,0 +1,43 @@
+package ru.otus.hw.ratelimit.integration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.otus.hw.ratelimit.config.DetectorProperties;
+import ru.otus.hw.ratelimit.domain.CorrelationMode;
+import ru.otus.hw.ratelimit.domain.LogEvent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CorrelationKeyResolverTest {
+
+    private final CorrelationKeyResolver resolver = new CorrelationKeyResolver(new DetectorProperties(3,
+            Duration.ofSeconds(2), List.of(), CorrelationMode.CLIENT_ID, null, List.of(),
+            null, null, null, null, null));
+
+    @Test
+    @DisplayName("Should fill both halves of a client id key from independent hashes")
+    void shouldHashBothHalvesOfClientIdKey() {
+        var mostBits = new HashSet<Long>();
+        var leastBits = new HashSet<Long>();
+        for (int i = 0; i < 1000; i++) {
+            UUID key = resolver.resolve(event("client-" + i));
+            mostBits.add(key.getMostSignificantBits());
+            leastBits.add(key.getLeastSignificantBits());
+            assertThat(key.getMostSignificantBits()).isNotEqualTo(key.getLeastSignificantBits());
+        }
+
+        assertThat(mostBits).hasSize(1000);
+        assertThat(leastBits).hasSize(1000);
+        assertThat(resolver.resolve(event("client-1"))).isEqualTo(resolver.resolve(event("client-1")));
+    }
+
+    private static LogEvent event(String clientId) {
+        return new LogEvent(Instant.parse("2025-01-01T00:00:09Z"), clientId, "1.1.1.1", "/a", 500);
+    }
+}
@@ -0,0 +1,123 @@
+package ru.otus.hw.ratelimit.integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.otus.hw.ratelimit.config.DetectorProperties;
+import ru.otus.hw.ratelimit.domain.CorrelationMode;
+import ru.otus.hw.ratelimit.domain.Incident;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IncidentCooldownTest {
+
+    private static final Instant START = Instant.parse("2025-01-01T00:00:10Z");
+
+    private final Clock clock = mock(Clock.class);
+
+    private final List<Incident> flushed = new ArrayList<>();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should merge follow-ups into the open incident and send them as its update")
+    void shouldMergeFollowUpsIntoOpenIncident() {
+        var cooldown = cooldown(Duration.ofSeconds(30), 100);
+        at(START);
+
+        Incident opened = cooldown.admit(incident("k", 3));
+        assertThat(opened).isNotNull();
+        assertThat(opened.isUpdate()).isFalse();
+        assertThat(cooldown.admit(incident("k", 4))).isNull();
+        assertThat(cooldown.admit(incident("k", 5))).isNull();
+        assertThat(registry.counter("detector.incident.suppressed").count()).isEqualTo(2);
+
+        at(START.plusSeconds(31));
+        cooldown.flushExpired();
+
+        assertThat(flushed).singleElement().satisfies(update -> {
+            assertThat(update.id()).isEqualTo(opened.id());
+            assertThat(update.windowStart()).isEqualTo(opened.windowStart());
+            assertThat(update.count()).isEqualTo(12);
+            assertThat(update.isUpdate()).isTrue();
+        });
+    }
+
+    @Test
+    @DisplayName("Should not send an update when nothing was merged during the cooldown")
+    void shouldSkipUpdateWithoutFollowUps() {
+        var cooldown = cooldown(Duration.ofSeconds(30), 100);
+        at(START);
+        cooldown.admit(incident("k", 3));
+
+        at(START.plusSeconds(31));
+        cooldown.flushExpired();
+
+        assertThat(flushed).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should send the pending update before opening a new incident after the cooldown")
+    void shouldSendPendingUpdateBeforeNextIncident() {
+        var cooldown = cooldown(Duration.ofSeconds(30), 100);
+        at(START);
+        Incident opened = cooldown.admit(incident("k", 3));
+        cooldown.admit(incident("k", 4));
+
+        at(START.plusSeconds(31));
+        Incident fresh = incident("k", 5);
+        Incident next = cooldown.admit(fresh);
+
+        assertThat(next).isEqualTo(fresh);
+        assertThat(flushed).singleElement().satisfies(update -> {
+            assertThat(update.id()).isEqualTo(opened.id());
+            assertThat(update.count()).isEqualTo(7);
+        });
+        assertThat(cooldown.admit(incident("k", 1))).isNull();
+    }
+
+    @Test
+    @DisplayName("Should send the pending update of the evicted key when the cache is full")
+    void shouldFlushEvictedKey() {
+        var cooldown = cooldown(Duration.ofSeconds(30), 1);
+        at(START);
+        Incident opened = cooldown.admit(incident("a", 3));
+        cooldown.admit(incident("a", 4));
+
+        assertThat(cooldown.admit(incident("b", 3))).isNotNull();
+
+        assertThat(flushed).singleElement().satisfies(update -> {
+            assertThat(update.id()).isEqualTo(opened.id());
+            assertThat(update.correlationKey()).isEqualTo("a");
+            assertThat(update.count()).isEqualTo(7);
+            assertThat(update.isUpdate()).isTrue();
+        });
+    }
+
+    private IncidentCooldown cooldown(Duration ttl, int maxKeys) {
+        var props = new DetectorProperties(3, Duration.ofSeconds(2), List.of(), CorrelationMode.CLIENT_ID,
+                Duration.ofMillis(100), List.of(), null, null, null, null,
+                new DetectorProperties.Cooldown(ttl, maxKeys, Duration.ofSeconds(1)));
+        return new IncidentCooldown(flushed::add, props, clock, registry);
+    }
+
+    private void at(Instant instant) {
+        when(clock.instant()).thenReturn(instant);
+    }
+
+    private static Incident incident(String key, int count) {
+        return new Incident(UUID.randomUUID(), key, count, START.minusSeconds(2), START,
+                Set.of("/api"), Map.of(500, (long) count));
+    }
+}
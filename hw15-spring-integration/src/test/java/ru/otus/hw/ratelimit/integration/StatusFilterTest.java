@@ -0,0 +1,35 @@
+package ru.otus.hw.ratelimit.integration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatusFilterTest {
+
+    @Test
+    @DisplayName("Should build bitset from single codes and ranges")
+    void shouldParseCodesAndRanges() {
+        BitSet bits = StatusFilter.parse(List.of("429", " 500 - 503 "));
+
+        assertThat(bits.cardinality()).isEqualTo(5);
+        assertThat(bits.get(429 - StatusFilter.MIN_STATUS)).isTrue();
+        assertThat(bits.get(503 - StatusFilter.MIN_STATUS)).isTrue();
+        assertThat(bits.get(504 - StatusFilter.MIN_STATUS)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should reject statuses outside 100..599 and reversed ranges")
+    void shouldRejectInvalidSpecs() {
+        assertThatThrownBy(() -> StatusFilter.parse(List.of("600")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StatusFilter.parse(List.of("503-500")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StatusFilter.parse(List.of("5xx")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,106 @@
+package ru.otus.hw.ratelimit.integration.store;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.MessagingException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardedMessageGroupStoreTest {
+
+    @Test
+    @DisplayName("Should keep groups of different keys isolated and track total message count")
+    void shouldTrackMessagesAcrossShards() {
+        var store = new ShardedMessageGroupStore(4, 100, Duration.ofMinutes(5));
+
+        store.addMessageToGroup("a", MessageBuilder.withPayload(1).build());
+        store.addMessageToGroup("a", MessageBuilder.withPayload(2).build());
+        store.addMessageToGroup("b", MessageBuilder.withPayload(3).build());
+
+        assertThat(store.messageGroupSize("a")).isEqualTo(2);
+        assertThat(store.messageGroupSize("b")).isEqualTo(1);
+        assertThat(store.getMessageGroupCount()).isEqualTo(2);
+        assertThat(store.getMessageCountForAllMessageGroups()).isEqualTo(3);
+
+        store.removeMessageGroup("a");
+
+        assertThat(store.getMessageCountForAllMessageGroups()).isEqualTo(1);
+        assertThat(store).extracting(group -> group.getGroupId()).containsExactly("b");
+    }
+
+    @Test
+    @DisplayName("Should reject messages when capacity is exhausted and nothing is idle")
+    void shouldRejectWhenOutOfCapacity() {
+        var store = new ShardedMessageGroupStore(2, 2, Duration.ofMinutes(5));
+        store.addMessageToGroup("a", MessageBuilder.withPayload(1).build());
+        store.addMessageToGroup("b", MessageBuilder.withPayload(2).build());
+
+        assertThatThrownBy(() -> store.addMessageToGroup("c", MessageBuilder.withPayload(3).build()))
+                .isInstanceOf(MessagingException.class);
+    }
+
+    @Test
+    @DisplayName("Should evict idle groups to make room for new messages")
+    void shouldEvictIdleGroupsWhenFull() {
+        // нулевой таймаут: любая уже изменённая группа считается простаивающей, без ожидания по часам
+        var store = new ShardedMessageGroupStore(2, 2, Duration.ZERO);
+        // группы удаляет expiry-колбэк, как это делает агрегатор
+        store.registerMessageGroupExpiryCallback((groups, group) -> groups.removeMessageGroup(group.getGroupId()));
+        store.addMessageToGroup("a", MessageBuilder.withPayload(1).build());
+        store.addMessageToGroup("b", MessageBuilder.withPayload(2).build());
+
+        store.addMessageToGroup("c", MessageBuilder.withPayload(3).build());
+
+        assertThat(store.getMessageGroupCount()).isEqualTo(1);
+        assertThat(store.getMessageCountForAllMessageGroups()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should never exceed capacity under concurrent writes to different shards")
+    void shouldHoldCapacityUnderConcurrentWrites() throws Exception {
+        var store = new ShardedMessageGroupStore(16, 100, Duration.ofMinutes(5));
+        var accepted = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        var pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                pool.execute(() -> {
+                    awaitQuietly(start);
+                    for (int i = 0; i < 100; i++) {
+                        try {
+                            store.addMessageToGroup("k" + thread + "-" + i, MessageBuilder.withPayload(i).build());
+                            accepted.incrementAndGet();
+                        } catch (MessagingException e) {
+                            // нет места — ожидаемо
+                        }
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            pool.shutdown();
+            assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(accepted).hasValue(100);
+        assertThat(store.getMessageCountForAllMessageGroups()).isEqualTo(100);
+        assertThat(store.getMessageGroupCount()).isEqualTo(100);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package ru.otus.hw.ratelimit.integration.window;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.otus.hw.ratelimit.config.DetectorProperties;
+import ru.otus.hw.ratelimit.config.DetectorProperties.Rule;
+import ru.otus.hw.ratelimit.domain.CorrelationMode;
+import ru.otus.hw.ratelimit.domain.LogEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingWindowCountersTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:10Z"));
+
+    @Test
+    @DisplayName("Should ignore events that are already older than the window")
+    void shouldIgnoreEventsOutsideWindow() {
+        var windows = counters(new Rule(3, Duration.ofSeconds(2)));
+
+        windows.record("k", event("2025-01-01T00:00:07.500Z", "/a", 500));
+        windows.record("k", event("2025-01-01T00:00:08.000Z", "/a", 500));
+        windows.record("k", event("2025-01-01T00:00:09.999Z", "/b", 429));
+
+        assertThat(windows.isTriggered("k")).isFalse();
+        assertThat(windows.snapshot("k").count()).isEqualTo(2);
+        assertThat(windows.snapshot("k").routes()).containsExactlyInAnyOrder("/a", "/b");
+    }
+
+    @Test
+    @DisplayName("Should expire buckets and their routes and statuses as time advances")
+    void shouldExpireBucketsAsTimeAdvances() {
+        var windows = counters(new Rule(3, Duration.ofSeconds(2)));
+
+        windows.record("k", event("2025-01-01T00:00:08.500Z", "/old", 500));
+        windows.record("k", event("2025-01-01T00:00:09.500Z", "/new", 429));
+        windows.record("k", event("2025-01-01T00:00:09.600Z", "/new", 429));
+        assertThat(windows.isTriggered("k")).isTrue();
+
+        clock.set(Instant.parse("2025-01-01T00:00:11Z"));
+
+        assertThat(windows.isTriggered("k")).isFalse();
+        WindowSnapshot snapshot = windows.snapshot("k");
+        assertThat(snapshot.count()).isEqualTo(2);
+        assertThat(snapshot.routes()).containsExactly("/new");
+        assertThat(snapshot.statusHistogram()).containsOnlyKeys(429).containsEntry(429, 2L);
+
+        clock.set(Instant.parse("2025-01-01T00:01:00Z"));
+
+        assertThat(windows.snapshot("k").count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should evaluate several rules over the same buckets and reset only the fired one")
+    void shouldEvaluateSeveralRules() {
+        var shortRule = new Rule(3, Duration.ofSeconds(2));
+        var longRule = new Rule(5, Duration.ofSeconds(60));
+        var windows = counters(shortRule, longRule);
+
+        windows.record("k", event("2025-01-01T00:00:00Z", "/a", 500));
+        windows.record("k", event("2025-01-01T00:00:01Z", "/a", 500));
+        windows.record("k", event("2025-01-01T00:00:09.100Z", "/b", 500));
+        windows.record("k", event("2025-01-01T00:00:09.200Z", "/b", 500));
+        windows.record("k", event("2025-01-01T00:00:09.300Z", "/b", 503));
+
+        RuleMatch first = windows.fire("k");
+        assertThat(first.rule()).isEqualTo(shortRule);
+        assertThat(first.window().count()).isEqualTo(3);
+        assertThat(first.window().routes()).containsExactly("/b");
+
+        RuleMatch second = windows.fire("k");
+        assertThat(second.rule()).isEqualTo(longRule);
+        assertThat(second.window().count()).isEqualTo(5);
+        assertThat(second.window().routes()).containsExactlyInAnyOrder("/a", "/b");
+
+        assertThat(windows.isTriggered("k")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should count events that arrive in the current bucket after a fire")
+    void shouldCountSameBucketEventsAfterFire() {
+        var shortRule = new Rule(2, Duration.ofSeconds(1));
+        var windows = counters(shortRule, new Rule(100, Duration.ofSeconds(60)));
+
+        windows.record("k", event("2025-01-01T00:00:10.000Z", "/a", 500));
+        windows.record("k", event("2025-01-01T00:00:10.010Z", "/a", 500));
+        assertThat(windows.fire("k").window().count()).isEqualTo(2);
+
+        windows.record("k", event("2025-01-01T00:00:10.020Z", "/b", 429));
+        assertThat(windows.isTriggered("k")).isFalse();
+        windows.record("k", event("2025-01-01T00:00:10.030Z", "/b", 429));
+        assertThat(windows.isTriggered("k")).isTrue();
+
+        RuleMatch second = windows.fire("k");
+        assertThat(second.rule()).isEqualTo(shortRule);
+        assertThat(second.window().count()).isEqualTo(2);
+        assertThat(second.window().routes()).containsExactly("/b");
+        assertThat(second.window().statusHistogram()).containsOnlyKeys(429);
+
+        clock.set(Instant.parse("2025-01-01T00:00:11.500Z"));
+        windows.record("k", event("2025-01-01T00:00:11.400Z", "/c", 500));
+        assertThat(windows.isTriggered("k")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should keep keys independent")
+    void shouldKeepKeysIndependent() {
+        var windows = counters(new Rule(2, Duration.ofSeconds(2)));
+
+        windows.record("k1", event("2025-01-01T00:00:09.000Z", "/a", 500));
+        windows.record("k1", event("2025-01-01T00:00:09.100Z", "/a", 500));
+        windows.record("k1", event("2025-01-01T00:00:09.200Z", "/a", 503));
+        windows.record("k2", event("2025-01-01T00:00:09.300Z", "/b", 429));
+        windows.record("k2", event("2025-01-01T00:00:09.400Z", "/b", 429));
+
+        RuleMatch first = windows.fire("k1");
+        assertThat(first.window().count()).isEqualTo(3);
+        assertThat(first.window().routes()).containsExactly("/a");
+        assertThat(first.window().statusHistogram()).containsEntry(500, 2L).containsEntry(503, 1L);
+        assertThat(windows.isTriggered("k2")).isTrue();
+
+        RuleMatch second = windows.fire("k2");
+        assertThat(second.window().count()).isEqualTo(2);
+        assertThat(second.window().routes()).containsExactly("/b");
+        assertThat(second.window().statusHistogram()).containsOnlyKeys(429).containsEntry(429, 2L);
+        assertThat(windows.isTriggered("k1")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should evict a key that fired and then went quiet")
+    void shouldEvictFiredKeyOnceQuiet() {
+        var windows = counters(new Rule(1, Duration.ofSeconds(2)), new Rule(10, Duration.ofSeconds(60)));
+
+        windows.record("k", event("2025-01-01T00:00:09.500Z", "/a", 500));
+        windows.fire("k");
+        assertThat(windows.size()).isEqualTo(1);
+        assertThat(windows.evictIdle()).isZero();
+
+        clock.set(Instant.parse("2025-01-01T00:01:10Z"));
+
+        assertThat(windows.evictIdle()).isEqualTo(1);
+        assertThat(windows.size()).isZero();
+        assertThat(windows.snapshot("k").count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should evict a key at once when the fire leaves no rule accumulating")
+    void shouldEvictKeyOnFireWhenIdle() {
+        var windows = counters(new Rule(1, Duration.ofSeconds(2)));
+
+        windows.record("k", event("2025-01-01T00:00:09.500Z", "/a", 500));
+        assertThat(windows.fire("k").window().count()).isEqualTo(1);
+
+        assertThat(windows.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should restore counters, routes and rule state from a binary snapshot")
+    void shouldRestoreFromBinarySnapshot() throws IOException {
+        var key = UUID.randomUUID();
+        var windows = counters(new Rule(3, Duration.ofSeconds(2)));
+        windows.record(key, event("2025-01-01T00:00:09.000Z", "/a", 500));
+        windows.record(key, event("2025-01-01T00:00:09.500Z", "/b", 429));
+
+        var bytes = new ByteArrayOutputStream();
+        assertThat(windows.writeTo(new DataOutputStream(bytes))).isEqualTo(1);
+
+        var restored = counters(new Rule(3, Duration.ofSeconds(2)));
+        var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertThat(restored.readFrom(in)).isEqualTo(1);
+
+        assertThat(restored.snapshot(key).count()).isEqualTo(2);
+        assertThat(restored.snapshot(key).routes()).containsExactlyInAnyOrder("/a", "/b");
+        assertThat(restored.snapshot(key).statusHistogram()).containsEntry(500, 1L).containsEntry(429, 1L);
+
+        restored.record(key, event("2025-01-01T00:00:09.900Z", "/a", 500));
+        assertThat(restored.isTriggered(key)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should drop restored keys whose windows have already expired")
+    void shouldDropExpiredKeysOnRestore() throws IOException {
+        var stale = UUID.randomUUID();
+        var live = UUID.randomUUID();
+        var windows = counters(new Rule(3, Duration.ofSeconds(2)));
+        windows.record(stale, event("2025-01-01T00:00:08.500Z", "/a", 500));
+        windows.record(live, event("2025-01-01T00:00:09.900Z", "/b", 500));
+
+        var bytes = new ByteArrayOutputStream();
+        assertThat(windows.writeTo(new DataOutputStream(bytes))).isEqualTo(2);
+
+        clock.set(Instant.parse("2025-01-01T00:00:11Z"));
+        var restored = counters(new Rule(3, Duration.ofSeconds(2)));
+        var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertThat(restored.readFrom(in)).isEqualTo(1);
+        assertThat(restored.size()).isEqualTo(1);
+        assertThat(restored.snapshot(live).count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should skip a snapshot taken with different rules")
+    void shouldSkipSnapshotWithDifferentRules() throws IOException {
+        var key = UUID.randomUUID();
+        var windows = counters(new Rule(3, Duration.ofSeconds(2)));
+        windows.record(key, event("2025-01-01T00:00:09.000Z", "/a", 500));
+
+        var bytes = new ByteArrayOutputStream();
+        windows.writeTo(new DataOutputStream(bytes));
+
+        var restored = counters(new Rule(5, Duration.ofSeconds(2)));
+        var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertThat(restored.readFrom(in)).isZero();
+        assertThat(restored.snapshot(key).count()).isZero();
+    }
+
+    private SlidingWindowCounters counters(Rule... rules) {
+        var props = new DetectorProperties(0, null, List.of(rules), CorrelationMode.CLIENT_ID,
+                Duration.ofMillis(100), List.of(), null, null, null, null, null);
+        return new SlidingWindowCounters(props, clock);
+    }
+
+    private LogEvent event(String timestamp, String route, int status) {
+        return new LogEvent(Instant.parse(timestamp), "client", "1.1.1.1", route, status);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void set(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
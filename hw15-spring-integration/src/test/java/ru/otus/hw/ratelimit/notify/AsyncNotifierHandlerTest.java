@@ -0,0 +1,164 @@
+package ru.otus.hw.ratelimit.notify;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.integration.support.MessageBuilder;
+import ru.otus.hw.ratelimit.config.DetectorProperties;
+import ru.otus.hw.ratelimit.domain.Incident;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class AsyncNotifierHandlerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final List<Incident> delivered = new CopyOnWriteArrayList<>();
+
+    private AsyncNotifierHandler handler;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        handler.destroy();
+    }
+
+    @Test
+    @DisplayName("Should merge incidents of the same key when the queue is full")
+    void shouldCoalesceWhenQueueIsFull() {
+        handler = new AsyncNotifierHandler("test", blockingNotifier(),
+                new DetectorProperties.Notify(1, 1, 10, OverflowPolicy.COALESCE), registry);
+
+        send(incident("busy", 1));
+        await().atMost(1, TimeUnit.SECONDS).until(() -> queueDepth() == 0);
+        send(incident("k", 3));
+        send(incident("k", 4));
+
+        release.countDown();
+        await().atMost(1, TimeUnit.SECONDS).until(() -> delivered.size() == 2);
+
+        assertThat(delivered.get(1).correlationKey()).isEqualTo("k");
+        assertThat(delivered.get(1).count()).isEqualTo(7);
+        assertThat(registry.get("detector.notify.coalesced").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should drop the newest incident when configured so and the queue is full")
+    void shouldDropNewestWhenQueueIsFull() {
+        handler = new AsyncNotifierHandler("test", blockingNotifier(),
+                new DetectorProperties.Notify(1, 1, 10, OverflowPolicy.DROP_NEWEST), registry);
+
+        send(incident("busy", 1));
+        await().atMost(1, TimeUnit.SECONDS).until(() -> queueDepth() == 0);
+        send(incident("a", 1));
+        send(incident("b", 1));
+
+        release.countDown();
+        await().atMost(1, TimeUnit.SECONDS).until(() -> delivered.size() == 2);
+
+        assertThat(delivered).extracting(Incident::correlationKey).containsExactly("busy", "a");
+        assertThat(registry.get("detector.notify.dropped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should count both incidents as dropped when the queue refills during coalescing")
+    void shouldCountBothWhenQueueRefillsDuringCoalesce() {
+        var queue = new RacingDeque(1);
+        handler = new AsyncNotifierHandler("test", blockingNotifier(),
+                new DetectorProperties.Notify(1, 1, 10, OverflowPolicy.COALESCE), registry,
+                queue, Duration.ofSeconds(1));
+
+        send(incident("busy", 1));
+        await().atMost(1, TimeUnit.SECONDS).until(() -> queueDepth() == 0);
+        send(incident("k", 3));
+        queue.racer = incident("other", 1);
+        send(incident("k", 4));
+
+        release.countDown();
+        await().atMost(1, TimeUnit.SECONDS).until(() -> delivered.size() == 2);
+
+        assertThat(delivered).extracting(Incident::correlationKey).containsExactly("busy", "other");
+        assertThat(registry.get("detector.notify.dropped").counter().count()).isEqualTo(2);
+        assertThat(registry.get("detector.notify.coalesced").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should count incidents left in the queue after the shutdown grace period as dropped")
+    void shouldCountLeftoversOnShutdown() {
+        handler = new AsyncNotifierHandler("test", blockingNotifier(),
+                new DetectorProperties.Notify(2, 1, 10, OverflowPolicy.DROP_NEWEST), registry,
+                new LinkedBlockingDeque<>(2), Duration.ofMillis(200));
+
+        send(incident("busy", 1));
+        await().atMost(1, TimeUnit.SECONDS).until(() -> queueDepth() == 0);
+        send(incident("a", 1));
+        send(incident("b", 1));
+
+        handler.destroy();
+
+        assertThat(queueDepth()).isZero();
+        assertThat(registry.get("detector.notify.dropped").counter().count()).isEqualTo(2);
+    }
+
+    private Notifier blockingNotifier() {
+        return incident -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.add(incident);
+        };
+    }
+
+    private double queueDepth() {
+        return registry.get("detector.notify.queue.depth").gauge().value();
+    }
+
+    private void send(Incident incident) {
+        handler.handleMessage(MessageBuilder.withPayload(incident).build());
+    }
+
+    private Incident incident(String key, int count) {
+        Instant now = Instant.parse("2025-01-01T00:00:10Z");
+        return new Incident(UUID.randomUUID(), key, count, now.minusSeconds(2), now, Set.of("/a"), Map.of(500, 1L));
+    }
+
+    /**
+     * Очередь, в которую «параллельный» enqueue успевает вставить инцидент сразу после удаления.
+     */
+    private static final class RacingDeque extends LinkedBlockingDeque<Incident> {
+
+        private volatile Incident racer;
+
+        private RacingDeque(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        public boolean removeFirstOccurrence(Object o) {
+            boolean removed = super.removeFirstOccurrence(o);
+            Incident next = racer;
+            if (removed && next != null) {
+                racer = null;
+                offerLast(next);
+            }
+            return removed;
+        }
+    }
+}
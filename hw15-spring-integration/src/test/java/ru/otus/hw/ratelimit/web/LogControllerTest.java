@@ -8,6 +8,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -38,4 +39,35 @@ class LogControllerTest {
                 .andExpect(status().isAccepted());
     }
 
+    @Test
+    void acceptsJsonArrayBatchAndCountsRejected() throws Exception {
+        mvc.perform(post("/logs/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [
+                                  {"clientId":"b","ip":"1.2.3.4","route":"/a","status":429},
+                                  {"clientId":"b","ip":"1.2.3.4","route":"/a","status":99},
+                                  {"clientId":"b","ip":"1.2.3.4","route":"/a","status":"oops"},
+                                  {"clientId":"b","ip":"1.2.3.4","route":"/b","status":500}
+                                ]
+                                """))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(2));
+    }
+
+    @Test
+    void acceptsNdjsonBatch() throws Exception {
+        mvc.perform(post("/logs/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("""
+                                {"clientId":"n","ip":"1.2.3.4","route":"/a","status":429}
+                                {"clientId":"","ip":"1.2.3.4","route":"/a","status":500}
+                                {"timestamp":"2025-01-01T00:00:09Z","clientId":"n","ip":"1.2.3.4","route":"/a","status":503}
+                                """))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(1));
+    }
+
 }